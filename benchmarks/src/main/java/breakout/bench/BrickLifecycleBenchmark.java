@@ -0,0 +1,60 @@
+/*
+ * This is part of a simple breakout clone.
+ * BrickLifecycleBenchmark.java measures building a level's bricks (with
+ * their grid) and destroying every brick of it again.
+ * @author: Mickey Kim
+ */
+package breakout.bench;
+
+import breakout.sim.BrickField;
+import breakout.sim.BrickGrid;
+import breakout.sim.GameConfig;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BrickLifecycleBenchmark {
+   @Param({"49", "1000", "10000"})
+   int brickCount;
+
+   private GameConfig config;
+   private BrickField bricks;
+   private BrickGrid grid;
+
+   @Setup(Level.Trial)
+   public void setup() {
+      config = Levels.config(brickCount, 1, 6);
+      bricks = new BrickField(brickCount);
+      grid = new BrickGrid(config.brickXGap, config.brickYGap);
+      create();
+   }
+
+   @Benchmark
+   public BrickField create() {
+      bricks.clear();
+      for (int row = 0; row < config.brickRows; row++) {
+         for (int col = 0; col < config.brickCols && bricks.size() < brickCount; col++) {
+            bricks.add(config.brickXOffset + col * config.brickXGap,
+                       config.brickYOffset + row * config.brickYGap,
+                       config.brickWidth, config.brickHeight, row % config.brickColors, 1);
+         }
+      }
+      grid.rebuild(bricks);
+      return bricks;
+   }
+
+   @Benchmark
+   public BrickField createAndDestroy() {
+      create();
+      for (int i = 0; i < bricks.size(); i++) {
+         bricks.kill(i);
+         grid.remove(bricks, i);
+      }
+      return bricks;
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ * This is part of a simple breakout clone.
+ * CollisionBenchmark.java compares ways of finding the bricks a moving ball
+ * touches: the BrickGrid broadphase against a scan over every brick, both
+ * followed by the swept narrowphase, plus the swept paddle test on its own.
+ * @author: Mickey Kim
+ */
+package breakout.bench;
+
+import breakout.sim.BrickField;
+import breakout.sim.BrickGrid;
+import breakout.sim.GameConfig;
+import breakout.sim.Swept;
+import breakout.sim.World;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+   private static final int PATHS = 1024; // precomputed ball paths, cycled through
+
+   @Param({"49", "1000", "10000"})
+   int brickCount;
+
+   @Param({"6", "24"})
+   double ballSpeed;
+
+   private BrickField bricks;
+   private BrickGrid grid;
+   private double radius;
+   private double paddleX, paddleY, paddleWidth, paddleHeight;
+   private final double[] x = new double[PATHS], y = new double[PATHS];
+   private final double[] velX = new double[PATHS], velY = new double[PATHS];
+   private final Swept.Contact contact = new Swept.Contact();
+   private int next;
+
+   @Setup(Level.Trial)
+   public void setup() {
+      GameConfig config = Levels.config(brickCount, 1, ballSpeed);
+      World world = new World(config);
+      bricks = world.getBricks();
+      grid = new BrickGrid(config.brickXGap, config.brickYGap);
+      grid.rebuild(bricks);
+      radius = config.ballRadius;
+      paddleX = world.getPaddleX();
+      paddleY = world.getPaddleY();
+      paddleWidth = config.paddleWidth;
+      paddleHeight = config.paddleHeight;
+      SplittableRandom random = new SplittableRandom(42);
+      for (int i = 0; i < PATHS; i++) {
+         double angle = random.nextDouble(2 * Math.PI);
+         x[i] = random.nextDouble(radius, config.width - radius);
+         y[i] = random.nextDouble(radius, config.height - radius);
+         velX[i] = Math.cos(angle) * ballSpeed;
+         velY[i] = Math.sin(angle) * ballSpeed;
+      }
+   }
+
+   @Benchmark
+   public int gridBroadphase() {
+      int i = next++ & (PATHS - 1);
+      double endX = x[i] + velX[i], endY = y[i] + velY[i];
+      int candidates = grid.query(Math.min(x[i], endX) - radius, Math.min(y[i], endY) - radius,
+                                  Math.max(x[i], endX) + radius, Math.max(y[i], endY) + radius);
+      int[] found = grid.results();
+      int hit = -1;
+      for (int c = 0; c < candidates; c++) {
+         if (sweep(i, found[c])) {
+            hit = found[c];
+         }
+      }
+      return hit;
+   }
+
+   @Benchmark
+   public int linearScan() {
+      int i = next++ & (PATHS - 1);
+      int hit = -1;
+      for (int b = 0; b < bricks.size(); b++) {
+         if (bricks.isAlive(b) && sweep(i, b)) {
+            hit = b;
+         }
+      }
+      return hit;
+   }
+
+   @Benchmark
+   public boolean paddleSweep() {
+      int i = next++ & (PATHS - 1);
+      return Swept.circleBox(x[i], y[i], velX[i], velY[i], radius, paddleX, paddleY,
+                             paddleX + paddleWidth, paddleY + paddleHeight, 1, contact);
+   }
+
+   private boolean sweep(int i, int b) {
+      return Swept.circleBox(x[i], y[i], velX[i], velY[i], radius,
+                             bricks.getXLeft(b), bricks.getYUpper(b),
+                             bricks.getXRight(b), bricks.getYLower(b), 1, contact);
+   }
+}
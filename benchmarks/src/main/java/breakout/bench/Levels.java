@@ -0,0 +1,28 @@
+/*
+ * This is part of a simple breakout clone.
+ * Levels.java builds game configs of a given size for the benchmarks
+ * @author: Mickey Kim
+ */
+package breakout.bench;
+
+import breakout.sim.GameConfig;
+
+final class Levels {
+   private static final double FLOOR_SPACE = 400; // free space between bricks and floor
+
+   private Levels() {
+   }
+
+   // A roughly square grid of brickCount bricks, with the playfield grown to fit
+   static GameConfig config(int brickCount, int ballCount, double ballSpeed) {
+      GameConfig config = new GameConfig();
+      config.brickCols = Math.max((int) Math.ceil(Math.sqrt(brickCount)), 1);
+      config.brickRows = (brickCount + config.brickCols - 1) / config.brickCols;
+      config.width = Math.max(config.width, config.brickXOffset * 2 + config.brickCols * config.brickXGap);
+      config.height = Math.max(config.height,
+                               config.brickYOffset + config.brickRows * config.brickYGap + FLOOR_SPACE);
+      config.ballCount = ballCount;
+      config.ballSpeed = ballSpeed;
+      return config;
+   }
+}
@@ -0,0 +1,109 @@
+/*
+ * This is part of a simple breakout clone.
+ * NarrowphaseBenchmark.java compares the exact swept test on every broadphase
+ * candidate (narrowphase "none") with culling the candidates first, by the
+ * scalar and the Vector API Narrowphase. The vector fork runs with the
+ * incubator module added.
+ * @author: Mickey Kim
+ */
+package breakout.bench;
+
+import breakout.sim.BrickField;
+import breakout.sim.BrickLanes;
+import breakout.sim.GameConfig;
+import breakout.sim.Narrowphase;
+import breakout.sim.Swept;
+import breakout.sim.World;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class NarrowphaseBenchmark {
+   private static final int PATHS = 1024; // precomputed ball paths, cycled through
+
+   // broadphase candidates per query: a few in normal levels, many in dense stress levels
+   @Param({"8", "32", "128", "1024"})
+   int candidates;
+
+   @Param({"none", "scalar", "vector"})
+   String narrowphase;
+
+   private BrickField bricks;
+   private final BrickLanes lanes = new BrickLanes(1024);
+   private Narrowphase cull; // null for none
+   private double radius;
+   private int[] found;
+   private final double[] x = new double[PATHS], y = new double[PATHS];
+   private final double[] velX = new double[PATHS], velY = new double[PATHS];
+   private final Swept.Contact contact = new Swept.Contact();
+   private int next;
+
+   @Setup(Level.Trial)
+   public void setup() {
+      GameConfig config = Levels.config(candidates, 1, 24);
+      World world = new World(config);
+      bricks = world.getBricks();
+      radius = config.ballRadius;
+      found = new int[bricks.size()];
+      for (int i = 0; i < found.length; i++) {
+         found[i] = i;
+      }
+      cull = "none".equals(narrowphase) ? null :
+             "vector".equals(narrowphase) ? Narrowphase.best() : Narrowphase.scalar();
+      if ("vector".equals(narrowphase) && cull.getClass() == Narrowphase.scalar().getClass()) {
+         throw new IllegalStateException("Vector API narrowphase not available");
+      }
+      SplittableRandom random = new SplittableRandom(42);
+      for (int i = 0; i < PATHS; i++) {
+         double angle = random.nextDouble(2 * Math.PI);
+         x[i] = random.nextDouble(radius, config.width - radius);
+         y[i] = random.nextDouble(radius, config.height - radius);
+         velX[i] = Math.cos(angle) * 24;
+         velY[i] = Math.sin(angle) * 24;
+      }
+   }
+
+   // The nearest hit along one path, by the exact test alone or after a cull
+   @Benchmark
+   public int collide() {
+      return cull == null ? exactOnly() : culled();
+   }
+
+   private int exactOnly() {
+      int i = next++ & (PATHS - 1);
+      int hit = -1;
+      contact.t = 1;
+      for (int c = 0; c < found.length; c++) {
+         int b = found[c];
+         if (Swept.circleBox(x[i], y[i], velX[i], velY[i], radius, bricks.getXLeft(b), bricks.getYUpper(b),
+                             bricks.getXRight(b), bricks.getYLower(b), contact.t, contact)) {
+            hit = b;
+         }
+      }
+      return hit;
+   }
+
+   private int culled() {
+      int i = next++ & (PATHS - 1);
+      int hit = -1;
+      contact.t = 1;
+      lanes.clear();
+      for (int c = 0; c < found.length; c++) {
+         lanes.add(bricks, found[c]);
+      }
+      int kept = cull.cull(x[i], y[i], velX[i], velY[i], radius, contact.t, lanes);
+      for (int k = 0; k < kept; k++) {
+         if (Swept.circleBox(x[i], y[i], velX[i], velY[i], radius, lanes.getMinX(k), lanes.getMinY(k),
+                             lanes.getMaxX(k), lanes.getMaxY(k), contact.t, contact)) {
+            hit = lanes.getId(k);
+         }
+      }
+      return hit;
+   }
+}
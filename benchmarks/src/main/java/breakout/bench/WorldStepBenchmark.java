@@ -0,0 +1,46 @@
+/*
+ * This is part of a simple breakout clone.
+ * WorldStepBenchmark.java measures one full game tick (World.step): ball
+ * movement, brick and paddle collisions, and level/lives bookkeeping.
+ * @author: Mickey Kim
+ */
+package breakout.bench;
+
+import breakout.sim.Headless;
+import breakout.sim.Input;
+import breakout.sim.World;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldStepBenchmark {
+   @Param({"49", "1000", "10000"})
+   int brickCount;
+
+   @Param({"1", "100", "10000"})
+   int ballCount;
+
+   @Param({"6", "24"})
+   double ballSpeed;
+
+   private World world;
+   private final Input input = new Input();
+
+   @Setup(Level.Trial)
+   public void setup() {
+      world = new World(Levels.config(brickCount, ballCount, ballSpeed));
+   }
+
+   @Benchmark
+   public World step() {
+      Headless.autopilot(world, input);
+      world.step(input);
+      input.clearPresses();
+      return world;
+   }
+}
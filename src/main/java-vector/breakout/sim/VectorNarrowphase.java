@@ -0,0 +1,44 @@
+/*
+ * This is part of a simple breakout clone.
+ * VectorNarrowphase.java is the Narrowphase on the incubating Vector API: the
+ * slab test runs on as many boxes at once as the CPU has double lanes.
+ * It is built only on JDK 16+ and loaded by Narrowphase.best.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+final class VectorNarrowphase implements Narrowphase {
+   private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+   @Override
+   public int cull(double px, double py, double vx, double vy, double r, double tMax, BrickLanes lanes) {
+      if (vx == 0 || vy == 0) {
+         return lanes.count; // Swept.circleBox takes its own branch for these
+      }
+      double[] nearX = vx > 0 ? lanes.minX : lanes.maxX, farX = vx > 0 ? lanes.maxX : lanes.minX;
+      double[] nearY = vy > 0 ? lanes.minY : lanes.maxY, farY = vy > 0 ? lanes.maxY : lanes.minY;
+      double nearR = vx > 0 ? -r : r, nearRY = vy > 0 ? -r : r;
+      int bound = SPECIES.loopBound(lanes.count);
+      int kept = 0;
+      for (int k = 0; k < bound; k += SPECIES.length()) {
+         // the same expressions as ScalarNarrowphase, lane by lane
+         DoubleVector tEnter = DoubleVector.fromArray(SPECIES, nearX, k).add(nearR).sub(px).div(vx)
+            .max(DoubleVector.fromArray(SPECIES, nearY, k).add(nearRY).sub(py).div(vy));
+         DoubleVector tExit = DoubleVector.fromArray(SPECIES, farX, k).sub(nearR).sub(px).div(vx)
+            .min(DoubleVector.fromArray(SPECIES, farY, k).sub(nearRY).sub(py).div(vy));
+         VectorMask<Double> keep = tEnter.compare(VectorOperators.LE, tExit)
+            .and(tExit.compare(VectorOperators.GT, 0))
+            .and(tEnter.compare(VectorOperators.LE, tMax))
+            .and(tEnter.compare(VectorOperators.GE, 0));
+         for (long bits = keep.toLong(); bits != 0; bits &= bits - 1) {
+            lanes.move(k + Long.numberOfTrailingZeros(bits), kept++);
+         }
+      }
+      return ScalarNarrowphase.cull(px, py, vx, vy, r, tMax, lanes, bound, kept);
+   }
+}
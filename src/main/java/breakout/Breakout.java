@@ -1,22 +1,34 @@
 /*
  * This is a simple breakout clone.
  * Breakout.java is the Controller and View (JavaFX) for the game
+ * The game rules live in breakout.sim.World, which this class steps and draws
  * @author: Mickey Kim
  */
-import java.io.File;
-import java.net.URL;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
 import java.util.*;
+import breakout.sim.BallSet;
+import breakout.sim.BrickField;
+import breakout.sim.EventQueue;
+import breakout.sim.FrameExchange;
+import breakout.sim.GameConfig;
+import breakout.sim.Headless;
+import breakout.sim.Input;
+import breakout.sim.InputRecorder;
+import breakout.sim.InputState;
+import breakout.sim.LevelFile;
+import breakout.sim.MessageQueue;
+import breakout.sim.Profiler;
+import breakout.sim.SnapshotRing;
+import breakout.sim.StateFrame;
+import breakout.sim.World;
 import javafx.animation.AnimationTimer;
-import javafx.animation.Timeline;
-import javafx.animation.KeyFrame;
 import javafx.application.Application;
 import javafx.application.Platform;
-import javafx.event.ActionEvent;
-import javafx.event.EventHandler;
-import javafx.geometry.Dimension2D;
-import javafx.geometry.Pos;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import javafx.geometry.HPos;
-import javafx.geometry.VPos;
 import javafx.scene.*;
 import javafx.scene.image.*;
 import javafx.scene.control.*;
@@ -25,166 +37,542 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
-import javafx.scene.media.AudioClip;
 import javafx.stage.*;
-import javafx.util.Duration;
 
 public class Breakout extends Application {
    // Constants
-   private static final int FPS60MS  = 16; // number of milliseconds per update (~60FPS)
+   private static final int TICK_HZ  = 60; // default simulation steps per second (--hz=N)
    private static final int WIDTH    = 600; // width of game window
    private static final int HEIGHT   = 800; // height of game window
-   private static final int PWIDTH   = 100; // paddle width
-   private static final int PHEIGHT  = 15; // paddle height
-   private static final int BWIDTH   = 70; // brick width
-   private static final int BHEIGHT  = 20; // brick height
+   private static final int REWIND_SECONDS = 10; // default play kept for rewinding with R (--rewind=SECONDS)
+   private static final int REWIND_MAX_BALLS = 64; // above this many balls history is off unless asked for
+   private static final int REWIND_SPEED = 2; // steps gone back per step while R is held
+   private static final Sound[] SOUNDS = Sound.values();
+   // Commands from the key and mouse handlers to the simulation; key commands
+   // carry their Input bit above CMD_BITS and their event time as the value
+   private static final int CMD_PRESS = 0, CMD_RELEASE = 1, CMD_REWIND = 2, CMD_QUICK_SAVE = 3,
+                            CMD_QUICK_LOAD = 4, CMD_DESTROY_BRICK = 5;
+   private static final int CMD_BITS = 4;
+   private static final int CMD_QUEUE = 256; // commands that can wait for the next step
+   // Messages from the simulation thread besides EventQueue events: the end of
+   // the events of a published frame (value: its sequence number), a step that
+   // went back in time or whose messages did not all fit (the views resync),
+   // the arrival time of a key event a step sampled, and how long a step took
+   private static final int MSG_FRAME = -1, MSG_RESTORED = -2, MSG_INPUT = -3, MSG_STEP = -4;
+   private static final int MSG_QUEUE = 1 << 16; // events the FX thread can fall behind by
+   private static final Profiler.Phase[] SIM_PHASES = {
+      Profiler.Phase.STEP, Profiler.Phase.PADDLE, Profiler.Phase.BALLS, Profiler.Phase.RULES
+   };
    private static final int LABELXSZ = WIDTH*2/3; // width of splash stackpane
    private static final int LABELYSZ = HEIGHT/4; // height of splash stackpane
-   private static final int BRICK_XOFFSET = 10; // x offset of bricks
-   private static final int BRICK_YOFFSET = 70; // y offset of bricks
-   private static final int BRICK_XGAP    = 85; // x gap between brick left wall
-   private static final int BRICK_YGAP    = 30; // y gap between brick top wall
-   private static final int SCORE_INCREM  = 100; // default score increment
-   private static final int DEFAULT_LIVES = 3; // default lives at start
-   private static final double BALL_RADIUS  = 10; // default ball radius
-   private static final double BALL_SPEED   = 6; // default ball speed
-   private static final double PADDLE_SPEED = 8; // default paddle speed
-   private static final double PADDLE_XMOD  = 0.8; // ball x velocity modifier on paddle collision
-   // Free sounds downloaded from : https://www.noiseforfun.com
-   // Win sound from : https://archive.org/details/FF7ACVictoryFanfareRingtoneperfectedMp3
-   private final String PADDLEHIT = "audio/paddle_hit.wav";
-   private final String BRICKHIT  = "audio/brick_hit.wav";
-   private final String DIED      = "audio/died.wav";
-   private final String GAMEOVER  = "audio/gameover.wav";
-   private final String GAMEWIN   = "audio/win.wav";
+   private static final int PARTICLES_PER_BRICK = 24; // default burst size (--particles=N)
+   private static final double CAMERA_EASE = 0.15; // share of the way to its target the camera moves per frame
    private final String BGIMG     = "image/bg_stars.png";
    // Game fields
-   private boolean roundHasStarted = false;
-   private int currentLives  = DEFAULT_LIVES;
-   private int currentLevel = 1;
-   private int currentScore = 0;
    private Color brickColors[] = {
       Color.RED, Color.ORANGE, Color.YELLOW, Color.GREEN, Color.BLUE, Color.MAGENTA, Color.PURPLE
    };
+   private World world; // the World the views draw
+   private World sim; // the World that is stepped: world itself, or with --sim=thread its own
+   private SimulationThread simThread; // set with --sim=thread
+   private FrameExchange frames; // sim to FX with --sim=thread
+   private final MessageQueue commands = new MessageQueue(CMD_QUEUE); // FX to sim with --sim=thread
+   private final MessageQueue messages = new MessageQueue(MSG_QUEUE); // sim to FX with --sim=thread
+   private StateFrame shown; // FX side: frame on screen with --sim=thread
+   private long shownInputNanos = -1; // first key event in a frame taken, not rendered yet
+   // Event effects gathered until flushEvents
+   private int soundMask;
+   private boolean hudChanged, viewsReset, bricksReset;
+   private boolean restored; // the last step went back in time
+   private SoundEngine sounds;
+   private final Input input = new Input();
+   private InputRecorder recorder; // set when recording with --record=file
+   private SnapshotRing history; // null when rewind is off
+   private boolean rewinding, quickSaveRequested, quickLoadRequested;
+   private final Profiler profiler = new Profiler(); // FX thread's, or the only one without --sim=thread
+   private final Profiler simProfiler = new Profiler(); // simulation thread's, read once it has stopped
+   private boolean messagesLost; // simulation thread: a message did not fit, the views must resync
+   private long audioNanos, hudNanos; // time spent on sounds and HUD this frame
+   private long lastFrame = -1;
+   private int frameSteps;
+   private final InputState inputState = new InputState();
+   private int assetsPending = 2; // background image and sounds, loaded off the FX thread
+   private long trainSteps = -1; // steps left in a --train run, or -1 when playing
    // Game object fields
-   private List<Brick> brickList = new ArrayList<Brick>();
+   private Brick[] brickViews = new Brick[0];
    private StackPane splash = new StackPane();
+   private Label splashLabel = new Label();
    private GridPane topText = new GridPane();
+   private IntegerProperty livesShown = new SimpleIntegerProperty();
+   private IntegerProperty levelShown = new SimpleIntegerProperty();
+   private IntegerProperty scoreShown = new SimpleIntegerProperty();
+   private StatsOverlay statsOverlay;
+   private PlayfieldCanvas playfield; // set when drawing with --renderer=canvas or cached
+   private BrickLayer brickLayer; // set when drawing with --renderer=cached
+   private Group scrolled; // set with --scroll: ball, paddle and bricks, moved by the camera
+   private BrickViewport viewport; // set with --scroll
+   private double cameraX, cameraY; // world position of the window's top left corner
+   private ParticleLayer particles; // null with --particles=0
+   private int particlesPerBrick;
    private Paddle gamePaddle;
-   private Ball gameBall;
+   private Ball[] gameBalls;
    private Group root;
 
    @Override
    public void start(Stage stage) throws Exception {
       stage.setTitle("Breakout!");
-      Image photo = new Image(getClass().getResource(BGIMG).toURI().toString()); 
+      // the window is shown at once; the image and sounds load in the background
+      Image photo = new Image(getClass().getResource(BGIMG).toURI().toString(), true);
       ImageView view = new ImageView(photo);
       root = new Group(view);
-      Scene scene = new Scene(root, WIDTH, HEIGHT);
+      Scene scene = new Scene(root, WIDTH, HEIGHT, Color.BLACK);
+      loadSounds();
       // create game objects
+      GameConfig config = new GameConfig(WIDTH, HEIGHT);
+      config.tickRate = getIntParameter("hz", TICK_HZ, 1);
+      config.ballCount = getIntParameter("balls", 1, 1);
+      String levelPath = getParameters().getNamed().get("level");
+      boolean threaded = "thread".equals(getParameters().getNamed().get("sim"));
+      boolean scroll = getParameters().getUnnamed().contains("--scroll");
+      LevelFile level = levelPath == null ? null : new LevelFile(Paths.get(levelPath));
+      if (scroll && level != null) {
+         // the world takes the level's size and the window shows part of it
+         config.width = Math.max(WIDTH, level.getWidth());
+         config.height = Math.max(HEIGHT, level.getHeight());
+      } else if (level != null && level.getWidth() > WIDTH) {
+         System.err.printf("%s is %.0f wide; bricks past x=%d are left out (play it with --scroll)%n",
+                           levelPath, level.getWidth(), WIDTH);
+      }
+      sim = new World(config, level);
+      sim.setProfiler(threaded ? simProfiler : profiler);
+      // a copy built the same way lays out the same bricks, so frames apply to it as they are
+      world = threaded ? new World(config, levelPath == null ? null : new LevelFile(Paths.get(levelPath))) : sim;
+      // every step is recorded, so with many balls history costs about as much as the step itself
+      int rewindSeconds = getIntParameter("rewind", config.ballCount > REWIND_MAX_BALLS ? 0 : REWIND_SECONDS, 0);
+      if (rewindSeconds > 0) {
+         history = new SnapshotRing(sim, rewindSeconds);
+      }
+      String recordPath = getParameters().getNamed().get("record");
+      if (recordPath != null) {
+         recorder = new InputRecorder(recordPath, config, level);
+      }
       createKeyHandler(root);
-      createBallPaddleAndDestroyOld(root, false);
-      createNewBricks(root);
+      String renderer = getParameters().getNamed().get("renderer");
+      if (scroll) {
+         createScrolledPlayfield(root);
+      } else if ("cached".equals(renderer)) {
+         view.setVisible(false); // the brick layer paints the background itself
+         brickLayer = new BrickLayer(world, brickColors, photo);
+         root.getChildren().add(brickLayer);
+         createPlayfieldCanvas(root);
+      } else if ("canvas".equals(renderer)) {
+         createPlayfieldCanvas(root);
+      } else {
+         createBallAndPaddle(root);
+         resetBricks(root);
+      }
+      createParticles(root);
       createSplashScreen(root, "start");
       createTopText(root);
+      createStatsOverlay(root);
+      if (photo.getProgress() >= 1) {
+         imageLoaded();
+      } else {
+         photo.progressProperty().addListener((observable, oldValue, progress) -> {
+            if (progress.doubleValue() >= 1) {
+               imageLoaded();
+            }
+         });
+      }
+      String train = getParameters().getNamed().get("train");
+      if (train != null) {
+         trainSteps = Long.parseLong(train);
+      }
       
       stage.setScene(scene);
       stage.setResizable(false);
       stage.show();
       // Main Game Loop
-      Timeline gameLoop = new Timeline();
-      gameLoop.setCycleCount(Timeline.INDEFINITE);
-      KeyFrame kf = new KeyFrame(Duration.millis(FPS60MS), (this::gameEvents));
-      gameLoop.getKeyFrames().add(kf);
-      gameLoop.play();
+      if (threaded) {
+         frames = new FrameExchange(sim);
+         statsOverlay.setFrameExchange(frames);
+         simThread = new SimulationThread(config.tickRate, this::simulationStep);
+         simThread.start();
+         new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+               present();
+            }
+         }.start();
+      } else {
+         GameLoop gameLoop = new GameLoop(config.tickRate, this::gameEvents, this::render);
+         gameLoop.start();
+      }
+   }
+
+   @Override
+   public void stop() throws Exception {
+      if (simThread != null) {
+         simThread.stop();
+         // the simulation phases are only in its own profiler
+         for (Profiler.Phase phase : SIM_PHASES) {
+            profiler.replace(phase, simProfiler.get(phase));
+         }
+      }
+      if (recorder != null) {
+         recorder.finish(sim);
+      }
+      String profilePath = getParameters().getNamed().get("profile");
+      if (profilePath != null) {
+         profiler.writeReport(Paths.get(profilePath));
+      }
+   }
+
+   // AudioClips are created on a loader thread and handed to the FX thread when done
+   private void loadSounds() {
+      Thread loader = new Thread(() -> {
+         SoundEngine engine = new SoundEngine();
+         Platform.runLater(() -> {
+            sounds = engine;
+            assetLoaded();
+         });
+      }, "asset-loader");
+      loader.setDaemon(true);
+      loader.start();
+   }
+
+   private void imageLoaded() {
+      if (brickLayer != null) {
+         brickLayer.invalidateAll(); // painted before the background was there
+      }
+      assetLoaded();
+   }
+
+   private void assetLoaded() {
+      if (--assetsPending == 0) {
+         System.out.printf("interactive after %d ms%n", ManagementFactory.getRuntimeMXBean().getUptime());
+      }
+   }
+
+   // A --name=N option; a value that is not a number or is below min stops
+   // the game with a message instead of failing later (--hz=0 divides by zero)
+   private int getIntParameter(String name, int defaultValue, int min) {
+      String value = getParameters().getNamed().get(name);
+      if (value == null) {
+         return defaultValue;
+      }
+      int parsed;
+      try {
+         parsed = Integer.parseInt(value.trim());
+      } catch (NumberFormatException e) {
+         throw new IllegalArgumentException("--" + name + " must be a whole number, not " + value);
+      }
+      if (parsed < min) {
+         throw new IllegalArgumentException("--" + name + " must be at least " + min + ", not " + parsed);
+      }
+      return parsed;
    }
 
    /*
     * Game Loop Methods
     */
-   private void gameEvents(ActionEvent e) {
-      if (roundHasStarted) {
-         gameBall.update();
-      } else {
-         gameBall.tether(gamePaddle.getMidX());
+   // FX pulse step without --sim=thread: step, then update the views from it
+   private void gameEvents() {
+      simulate();
+      if (restored) {
+         showRestoredState();
       }
-      gamePaddle.update();
-      checkBrickCollisions();
-      checkBrickAndWinStatus();
-      checkPaddleCollision();
-      checkBallAndLivesStatus();
+      drainEvents(world.getEvents());
+      frameSteps++;
    }
 
-   private void checkBrickCollisions() {
-      for (Brick currBrick : brickList) {
-         if (currBrick.getBoundsInLocal().intersects(gameBall.getBoundsInLocal())) {
-            if (gameBall.getY() < currBrick.getYUpper()) {
-               gameBall.hitBrickTop();
-            }
-            if (gameBall.getY() > currBrick.getYLower()) {
-               gameBall.hitBrickBottom();
-            }
-            if (gameBall.getX() < currBrick.getXLeft()) {
-               gameBall.hitBrickLeft();
-            }
-            if (gameBall.getX() > currBrick.getXRight()) {
-               gameBall.hitBrickRight();
-            }
-            int newBrickHealth = currBrick.getHealth() - 1;
-            if (newBrickHealth == 0) {
-               destroyBrick(currBrick);
-               currentScore += SCORE_INCREM;
-               updateTopText(root);
+   // Simulation thread step with --sim=thread: run the commands sent since
+   // the last step, step, then send its events and publish its state
+   private void simulationStep() {
+      while (commands.poll()) {
+         runCommand(commands.code(), commands.value());
+      }
+      long start = System.nanoTime();
+      simulate();
+      post(MSG_STEP, System.nanoTime() - start);
+      long sampled = inputState.takeSampled();
+      if (sampled >= 0) {
+         post(MSG_INPUT, sampled);
+      }
+      sendEvents();
+      // after lost messages the views cannot follow event by event any more,
+      // so they are told to resync with the World, as after a rewind
+      if (restored || messagesLost) {
+         messagesLost = !messages.offer(MSG_RESTORED, 0);
+      }
+      frames.back().capture(sim, System.nanoTime());
+      post(MSG_FRAME, frames.nextSequence());
+      frames.publish();
+   }
+
+   // Events the simulation raised since the last call, for the FX thread
+   private void sendEvents() {
+      EventQueue events = sim.getEvents();
+      while (events.next()) {
+         post(events.type(), events.arg());
+      }
+   }
+
+   // Simulation thread: send a message to the FX thread, remembering if it did not fit
+   private void post(int code, long value) {
+      if (!messages.offer(code, value)) {
+         messagesLost = true;
+      }
+   }
+
+   // FX pulse with --sim=thread: show the newest frame, if there is one, with
+   // the events up to it, drawn blended by how much of the next step has
+   // passed since it was published. Frames skipped in between are not drawn,
+   // but their events are all handled.
+   private void present() {
+      StateFrame frame = frames.take();
+      if (frame != null) {
+         frame.applyTo(world);
+         boolean restoredSince = false;
+         while (messages.poll()) {
+            int code = messages.code();
+            if (code == MSG_FRAME) {
+               frameSteps++;
+               if (messages.value() == frame.getSequence()) {
+                  break;
+               }
+            } else if (code == MSG_RESTORED) {
+               restoredSince = true;
+            } else if (code == MSG_INPUT) {
+               if (shownInputNanos < 0) {
+                  shownInputNanos = messages.value();
+               }
+            } else if (code == MSG_STEP) {
+               profiler.record(Profiler.Phase.STEP, messages.value());
             } else {
-               currBrick.setHealth(newBrickHealth);
+               onEvent(code, (int) messages.value());
             }
-            playSound("brick");
          }
+         flushEvents();
+         if (restoredSince) {
+            showRestoredState();
+         }
+         shown = frame;
       }
+      double alpha = shown == null ? 1 :
+                     (System.nanoTime() - shown.getNanos()) / (double) simThread.getStepNanos();
+      render(Math.min(alpha, 1));
    }
 
-   private void checkBrickAndWinStatus() {
-      if (brickList.isEmpty()) {
-         playSound("win");
-         createBallPaddleAndDestroyOld(root, true);
-         currentLevel++;
-         createNewBricks(root);
-         createSplashScreen(root, "gamewon");
-         updateTopText(root);
+   // One step of the simulation, on whichever thread runs it; the views are
+   // left to the caller (restored tells it the step went back in time)
+   private void simulate() {
+      restored = false;
+      if (trainSteps >= 0) {
+         // a training run plays itself through every code path, then quits
+         if (trainSteps-- == 0) {
+            Platform.exit();
+            return;
+         }
+         Headless.autopilot(sim, input);
+      } else {
+         inputState.sample(input);
+         if (timeTravel()) {
+            return;
+         }
+      }
+      if (recorder != null) {
+         try {
+            recorder.record(input);
+         } catch (IOException e) {
+            System.err.println("Stopped recording: " + e);
+            recorder = null;
+         }
+      }
+      sim.step(input);
+      input.clearPresses();
+      if (history != null) {
+         history.record();
       }
    }
 
-   // Ball movement velocities adapted from : https://gamedev.stackexchange.com/a/21048
-   private void checkPaddleCollision() {
-      if (gameBall.getBoundsInLocal().intersects(gamePaddle.getBoundsInLocal())) {
-         gameBall.hitPaddle();
-         double speedX = gameBall.getVelX();
-         double speedY = gameBall.getVelY();
-         double posX = (gameBall.getX() - gamePaddle.getMidX()) / (PWIDTH/2);
-         double speedXY = Math.sqrt(speedX * speedX + speedY * speedY);
-         speedX = speedXY * posX * PADDLE_XMOD;
-         gameBall.setVelX(speedX);
-         gameBall.setVelY(Math.sqrt(speedXY * speedXY - speedX * speedX) *
-                                    (speedY > 0 ? -1 : 1));
-         playSound("paddle");
+   // Quick-save, quick-load and rewind act between steps; the last two are off
+   // while recording, since a recording must replay forward. Returns true if
+   // this step went back in time instead of forward.
+   private boolean timeTravel() {
+      if (history == null) {
+         quickSaveRequested = quickLoadRequested = false;
+         return false;
+      }
+      if (quickSaveRequested) {
+         quickSaveRequested = false;
+         history.quickSave();
       }
+      if (recorder != null) {
+         quickLoadRequested = false;
+         return false;
+      }
+      if (quickLoadRequested) {
+         quickLoadRequested = false;
+         if (history.quickLoad()) {
+            history.record();
+            restored = true;
+         }
+      }
+      if (rewinding && history.rewind(REWIND_SPEED) > 0) {
+         restored = true;
+         return true;
+      }
+      return false;
    }
 
-   private void checkBallAndLivesStatus() {
-      if (gameBall.isDead()) {
-         createBallPaddleAndDestroyOld(root, true);
-         if (--currentLives == 0) {
-            playSound("over");
-            createSplashScreen(root, "gameover");
-            currentLives = DEFAULT_LIVES;
-            currentScore = 0;
-            createNewBricks(root);
-         } else {
+   // Views snap to a World that was just restored from a snapshot
+   private void showRestoredState() {
+      resetBallAndPaddle();
+      resetBricks();
+      updateTopText();
+      splash.setVisible(!world.hasRoundStarted());
+   }
+
+   // alpha is how far the frame lies between the last two simulation steps
+   private void render(double alpha) {
+      long start = System.nanoTime();
+      if (playfield != null) {
+         if (brickLayer != null) {
+            brickLayer.draw();
+         }
+         playfield.draw(alpha);
+      } else {
+         for (Ball gameBall : gameBalls) {
+            gameBall.update(alpha);
+         }
+         gamePaddle.update(alpha);
+         if (scrolled != null) {
+            moveCamera(alpha);
+         }
+      }
+      if (particles != null) {
+         particles.frame(start, cameraX, cameraY);
+      }
+      long end = System.nanoTime();
+      if (lastFrame < 0) {
+         System.out.printf("first frame after %d ms%n", ManagementFactory.getRuntimeMXBean().getUptime());
+      }
+      recordFrame(start, end);
+   }
+
+   // Per-frame phase times go to the profiler, Flight Recorder and overlay
+   private void recordFrame(long renderStart, long renderEnd) {
+      long interval = lastFrame < 0 ? 0 : renderStart - lastFrame;
+      long inputLatency;
+      if (frames == null) {
+         inputLatency = inputState.takeLatency(renderEnd);
+      } else {
+         inputLatency = shownInputNanos < 0 ? -1 : renderEnd - shownInputNanos;
+         shownInputNanos = -1;
+      }
+      profiler.record(Profiler.Phase.AUDIO, audioNanos);
+      profiler.record(Profiler.Phase.HUD, hudNanos);
+      profiler.record(Profiler.Phase.RENDER, renderEnd - renderStart);
+      if (lastFrame >= 0) {
+         profiler.record(Profiler.Phase.FRAME, interval);
+      }
+      if (inputLatency >= 0) {
+         profiler.record(Profiler.Phase.INPUT, inputLatency);
+      }
+      FrameEvent event = new FrameEvent();
+      if (event.shouldCommit()) {
+         event.steps = frameSteps;
+         event.audio = audioNanos;
+         event.hud = hudNanos;
+         event.render = renderEnd - renderStart;
+         event.interval = interval;
+         event.inputLatency = Math.max(inputLatency, 0);
+         event.commit();
+      }
+      statsOverlay.frame(renderStart);
+      lastFrame = renderStart;
+      audioNanos = 0;
+      hudNanos = 0;
+      frameSteps = 0;
+   }
+
+   private void playSound(Sound sound) {
+      if (sounds == null) {
+         return; // still loading
+      }
+      long start = System.nanoTime();
+      sounds.play(sound);
+      audioNanos += System.nanoTime() - start;
+   }
+
+   /*
+    * World Event Methods
+    */
+   // Read the events of the last step once: sounds play at most once per type
+   // and the HUD and views are refreshed once, however many events asked for it
+   private void drainEvents(EventQueue events) {
+      while (events.next()) {
+         onEvent(events.type(), events.arg());
+      }
+      flushEvents();
+   }
+
+   private void onEvent(int type, int arg) {
+      switch (type) {
+         case EventQueue.ROUND_STARTED:
+            soundMask |= 1 << Sound.PADDLEHIT.ordinal();
+            splash.setVisible(false);
+            break;
+         case EventQueue.EXTRA_LIFE:
+            hudChanged = true;
+            break;
+         case EventQueue.BRICK_DESTROYED:
+            hideBrick(arg);
+            hudChanged = true;
+            break;
+         case EventQueue.BRICK_HIT:
+            soundMask |= 1 << Sound.BRICKHIT.ordinal();
+            break;
+         case EventQueue.PADDLE_HIT:
+            soundMask |= 1 << Sound.PADDLEHIT.ordinal();
+            break;
+         case EventQueue.BALL_LOST:
+            soundMask |= 1 << Sound.DIED.ordinal();
             createSplashScreen(root, "died");
-            playSound("died");
+            hudChanged = viewsReset = true;
+            break;
+         case EventQueue.GAME_OVER:
+            soundMask |= 1 << Sound.GAMEOVER.ordinal();
+            createSplashScreen(root, "gameover", arg);
+            hudChanged = viewsReset = bricksReset = true;
+            break;
+         case EventQueue.LEVEL_CLEARED:
+            soundMask |= 1 << Sound.GAMEWIN.ordinal();
+            createSplashScreen(root, "gamewon");
+            hudChanged = viewsReset = bricksReset = true;
+            break;
+         default:
+      }
+   }
+
+   private void flushEvents() {
+      if (viewsReset) {
+         resetBallAndPaddle();
+      }
+      if (bricksReset) {
+         resetBricks();
+      }
+      if (hudChanged) {
+         updateTopText();
+      }
+      for (Sound sound : SOUNDS) {
+         if ((soundMask & 1 << sound.ordinal()) != 0) {
+            playSound(sound);
          }
-         updateTopText(root);
       }
+      soundMask = 0;
+      hudChanged = viewsReset = bricksReset = false;
    }
 
    /*
@@ -200,197 +588,330 @@ public class Breakout extends Application {
       root.getChildren().add(keyboardNode);
    }
 
+   // Single canvas drawn from the World in place of the ball, paddle and brick nodes
+   private void createPlayfieldCanvas(Group root) {
+      playfield = new PlayfieldCanvas(world, brickLayer == null ? brickColors : null);
+      playfield.setOnMousePressed(event -> {
+         int brick = world.brickAt(event.getX(), event.getY());
+         if (brick >= 0) {
+            send(CMD_DESTROY_BRICK, brick);
+         }
+      });
+      root.getChildren().add(playfield);
+   }
+
+   // Ball, paddle and the bricks in view in one group the camera moves over a
+   // world larger than the window; it starts over the serve at the bottom
+   private void createScrolledPlayfield(Group root) {
+      scrolled = new Group();
+      viewport = new BrickViewport(world, brickColors, brick -> send(CMD_DESTROY_BRICK, brick));
+      scrolled.getChildren().add(viewport);
+      createBallAndPaddle(scrolled);
+      root.getChildren().add(scrolled);
+      GameConfig config = world.getConfig();
+      cameraX = (config.width - WIDTH) / 2;
+      cameraY = config.height - HEIGHT;
+   }
+
+   // One image over the playfield for every particle
+   private void createParticles(Group root) {
+      particlesPerBrick = getIntParameter("particles", PARTICLES_PER_BRICK, 0);
+      if (particlesPerBrick > 0) {
+         particles = new ParticleLayer(WIDTH, HEIGHT, brickColors);
+         root.getChildren().add(particles);
+      }
+   }
+
    private void createNewBall(Group root) {
-      gameBall = new Ball(new Dimension2D(WIDTH, HEIGHT), BALL_RADIUS);
-      gameBall.setVelX(BALL_SPEED);
-      gameBall.setVelY(-BALL_SPEED);
-      root.getChildren().add(gameBall);
+      gameBalls = new Ball[world.getBalls().capacity()];
+      for (int i = 0; i < gameBalls.length; i++) {
+         gameBalls[i] = new Ball(world, i);
+         root.getChildren().add(gameBalls[i]);
+      }
    }
 
    private void createPaddle(Group root) {
-      roundHasStarted = false;
-      gamePaddle = new Paddle(new Dimension2D(WIDTH, HEIGHT), PWIDTH, PHEIGHT);
+      gamePaddle = new Paddle(world);
       root.getChildren().add(gamePaddle);
    }
 
-   private void createNewBricks(Group root) {
-      if (!brickList.isEmpty()) {
-         for (Brick currBrick : brickList) {
-            destroyBrick(currBrick);
+   // Brick nodes are pooled by brick index: a new level resets the nodes it
+   // needs in place, creates only the ones it lacks, and hides the rest
+   private void resetBricks(Group root) {
+      BrickField bricks = world.getBricks();
+      if (brickViews.length < bricks.size()) {
+         Brick[] grown = Arrays.copyOf(brickViews, bricks.size());
+         for (int i = brickViews.length; i < grown.length; i++) {
+            Brick gameBrick = new Brick(i);
+            gameBrick.setOnMousePressed(event -> send(CMD_DESTROY_BRICK, gameBrick.getIndex()));
+            root.getChildren().add(gameBrick);
+            grown[i] = gameBrick;
          }
+         brickViews = grown;
       }
-      createBricks(root);
-   }
-
-   private void createBricks(Group root) {
-      int xPos = BRICK_XOFFSET;
-      int yPos = BRICK_YOFFSET;
-      int colorIndex = brickColors.length - 1;
-      for (int i = 0; i < brickColors.length; i++) {
-         for (int j = 0; j < brickColors.length; j++) {
-            Brick gameBrick = new Brick(xPos, yPos, brickColors[colorIndex], BWIDTH, BHEIGHT, 1);
-            xPos += BRICK_XGAP;
-            gameBrick.setOnMousePressed(event -> this.destroyBrick(gameBrick));
-            root.getChildren().add(gameBrick);
-            brickList.add(gameBrick);
+      for (int i = 0; i < brickViews.length; i++) {
+         if (i < bricks.size()) {
+            brickViews[i].reset(bricks, brickColors[Math.floorMod(bricks.getColor(i), brickColors.length)]);
+         } else {
+            brickViews[i].setVisible(false);
          }
-         colorIndex--;
-         xPos = BRICK_XOFFSET;
-         yPos += BRICK_YGAP;
       }
    }
 
    /*
     * Object Managment Methods
     */
-   private void createBallPaddleAndDestroyOld(Group root, boolean destroyOld) {
-      if (destroyOld) {
-         root.getChildren().remove(gameBall);
-         root.getChildren().remove(gamePaddle);
-      }
+   // Ball and paddle nodes are made once; a new round resets them in place
+   private void createBallAndPaddle(Group root) {
       createPaddle(root);
       createNewBall(root);
    }
 
-   // This method is necessary to avoid ConcurrentModificationException errors
-   // Solution adapted from : https://stackoverflow.com/q/16125311
-   private void destroyBrick(Brick brick) {
-      if (roundHasStarted) {
-         Platform.runLater(new Runnable() {
-            @Override
-            public void run() {
-               brickList.remove(brick);
-               root.getChildren().remove(brick);
-            }
-         });
+   private void resetBallAndPaddle() {
+      if (playfield == null) {
+         for (Ball gameBall : gameBalls) {
+            gameBall.reset();
+         }
+         gamePaddle.reset();
+      }
+   }
+
+   // The mouse cheat, on the simulation side: the views learn of the brick
+   // at once, or with --sim=thread with the next frame. Off while recording,
+   // since a click is not part of the recorded input and would not replay.
+   private void destroyBrick(int brick) {
+      if (recorder != null) {
+         return;
+      }
+      sim.destroyBrick(brick);
+      if (frames != null) {
+         sendEvents();
+      } else {
+         drainEvents(world.getEvents());
+      }
+   }
+
+   // Hide a brick the world destroyed and burst it into particles
+   private void hideBrick(int brick) {
+      if (viewport != null) {
+         viewport.invalidate(brick);
+      } else if (brickLayer != null) {
+         brickLayer.invalidate(brick);
+      } else if (playfield == null) {
+         brickViews[brick].setVisible(false);
+      }
+      if (particles != null) {
+         BrickField bricks = world.getBricks();
+         particles.burst(bricks.getXLeft(brick), bricks.getYUpper(brick),
+                         bricks.getWidth(brick), bricks.getHeight(brick), bricks.getColor(brick),
+                         particlesPerBrick);
+      }
+   }
+
+   // The camera eases toward the first live ball, staying inside the world,
+   // and the bricks it now shows get their nodes
+   private void moveCamera(double alpha) {
+      BallSet balls = world.getBalls();
+      int ball = 0;
+      while (ball < balls.size() - 1 && !balls.isLive(ball)) {
+         ball++;
+      }
+      GameConfig config = world.getConfig();
+      double targetX = Math.max(0, Math.min(world.getBallX(ball, alpha) - WIDTH/2, config.width - WIDTH));
+      double targetY = Math.max(0, Math.min(world.getBallY(ball, alpha) - HEIGHT/2, config.height - HEIGHT));
+      cameraX += (targetX - cameraX) * CAMERA_EASE;
+      cameraY += (targetY - cameraY) * CAMERA_EASE;
+      scrolled.setTranslateX(-cameraX);
+      scrolled.setTranslateY(-cameraY);
+      viewport.update(cameraX, cameraY, WIDTH, HEIGHT);
+   }
+
+   // A new brick layout is shown by whichever view draws the bricks
+   private void resetBricks() {
+      if (viewport != null) {
+         viewport.reset();
+      } else if (brickLayer != null) {
+         brickLayer.invalidateAll();
+      } else if (playfield == null) {
+         resetBricks(root);
       }
    }
 
    /*
     * Key Handling Methods
     */
+   // Game keys only change the input state; each step samples it once
    private void keyPressed(KeyEvent key) {
-      if (key.getCode() == KeyCode.SPACE && roundHasStarted == false) {
-         playSound("paddle");
-         root.getChildren().remove(splash);
-         splash.getChildren().clear();
-         roundHasStarted = true;
+      int bit = inputBit(key.getCode());
+      if (bit != 0) {
+         send(CMD_PRESS | bit << CMD_BITS, System.nanoTime());
+      }
+      if (key.getCode() == KeyCode.F3) {
+         statsOverlay.toggle();
       }
-      if (key.getCode() == KeyCode.RIGHT || key.getCode() == KeyCode.D) {
-         gamePaddle.setVelX(PADDLE_SPEED);
-      } else if (key.getCode() == KeyCode.LEFT || key.getCode() == KeyCode.A) {
-         gamePaddle.setVelX(-PADDLE_SPEED);
+      if (key.getCode() == KeyCode.R) {
+         send(CMD_REWIND, 1);
       }
-      if (key.getCode() == KeyCode.ENTER) {
-         currentLives++;
-         updateTopText(root);
+      if (key.getCode() == KeyCode.F5) {
+         send(CMD_QUICK_SAVE, 0);
+      }
+      if (key.getCode() == KeyCode.F9) {
+         send(CMD_QUICK_LOAD, 0);
       }
       if (key.getCode() == KeyCode.ESCAPE) {
-         System.exit(0);
+         Platform.exit();
       }
    }
 
-   // Need to fix jerkiness on change of directions while touching both left & right
    private void keyReleased(KeyEvent key) {
-      if (key.getCode() == KeyCode.RIGHT || key.getCode() == KeyCode.LEFT ||
-          key.getCode() == KeyCode.D || key.getCode() == KeyCode.A) {
-            gamePaddle.setVelX(0);
+      int bit = inputBit(key.getCode());
+      if (bit != 0) {
+         send(CMD_RELEASE | bit << CMD_BITS, System.nanoTime());
+      }
+      if (key.getCode() == KeyCode.R) {
+         send(CMD_REWIND, 0);
       }
    }
 
-   /*
-    * Sound Effect Methods
-    */
-   private void playSound(String select) {
-      URL path = null;
-      AudioClip ac;
-      switch (select) {
-         case "paddle":
-            path = getClass().getResource(PADDLEHIT);
+   // Commands run at once on the FX thread, or with --sim=thread are queued
+   // for the simulation thread's next step. A full queue waits for that step
+   // rather than drop the command (a lost key release would leave the key held).
+   private void send(int command, long value) {
+      if (simThread == null) {
+         runCommand(command, value);
+      } else {
+         while (!commands.offer(command, value) && simThread.isRunning()) {
+            Thread.yield();
+         }
+      }
+   }
+
+   private void runCommand(int command, long value) {
+      int bit = command >>> CMD_BITS;
+      switch (command & ((1 << CMD_BITS) - 1)) {
+         case CMD_PRESS:
+            inputState.press(bit, value);
             break;
-         case "brick":
-            path = getClass().getResource(BRICKHIT);
+         case CMD_RELEASE:
+            inputState.release(bit, value);
             break;
-         case "died":
-            path = getClass().getResource(DIED);
+         case CMD_REWIND:
+            rewinding = value != 0;
             break;
-         case "over":
-            path = getClass().getResource(GAMEOVER);
+         case CMD_QUICK_SAVE:
+            quickSaveRequested = true;
             break;
-         case "win":
-            path = getClass().getResource(GAMEWIN);
+         case CMD_QUICK_LOAD:
+            quickLoadRequested = true;
             break;
+         case CMD_DESTROY_BRICK:
+            destroyBrick((int) value);
+            break;
+         default:
+      }
+   }
+
+   private static int inputBit(KeyCode code) {
+      switch (code) {
+         case RIGHT:
+         case D:
+            return Input.RIGHT_BIT;
+         case LEFT:
+         case A:
+            return Input.LEFT_BIT;
+         case SPACE:
+            return Input.LAUNCH_BIT;
+         case ENTER:
+            return Input.EXTRA_LIFE_BIT;
          default:
+            return 0;
       }
-      ac = new AudioClip(path.toString());
-      ac.play();
    }
 
    /*
     * Text Graphic Methods
     */
    private void createSplashScreen(Group root, String text) {
-      Label label = null;
+      createSplashScreen(root, text, world.getScore());
+   }
+
+   // The splash pane and label are made once and shown or hidden with new text
+   private void createSplashScreen(Group root, String text, int score) {
+      String message = "";
       switch (text) {
          case "start":
-            label = new Label(
-               "Breakout!\n\nPress Space to start a new game" +
-               "\nMove with arrow keys or A and D\nPress ESC to exit game");
+            message = "Breakout!\n\nPress Space to start a new game" +
+                      "\nMove with arrow keys or A and D\nPress ESC to exit game";
             break;
          case "died":
-            label = new Label(
-               "You died.\n\nLives remaining: " + currentLives +
-               "\nPress Space to continue" +
-               "\nPress ESC to exit game");
+            message = "You died.\n\nLives remaining: " + world.getLives() +
+                      "\nPress Space to continue" +
+                      "\nPress ESC to exit game";
             break;
          case "gameover":
-            label = new Label(
-               "Game Over.\n\nScore: " + currentScore +
-               "\nPress Space to start a new game" +
-               "\nPress ESC to exit game");
+            message = "Game Over.\n\nScore: " + score +
+                      "\nPress Space to start a new game" +
+                      "\nPress ESC to exit game";
             break;
          case "gamewon":
-            label = new Label(
-               "Congratulations you won!\n\nScore: " + currentScore +
-               "\nPress Space to continue to level " + currentLevel +
-               "\nPress ESC to exit game");
+            message = "Congratulations you won!\n\nScore: " + score +
+                      "\nPress Space to continue to level " + world.getLevel() +
+                      "\nPress ESC to exit game";
             break;
          default:
       }
-      label.setStyle("-fx-text-fill: white; -fx-font: bold 20 \"serif\"; " +
-                     "-fx-padding: 20 20 20 20; -fx-text-alignment: center");
-      splash.setPrefSize(LABELXSZ, LABELYSZ);
-      splash.getChildren().clear();
-      splash.getChildren().add(label);
-      splash.setStyle("-fx-background-color: rgba(0, 100, 100, 0.5); -fx-background-radius: 10;");
-      splash.setTranslateX(WIDTH/2 - LABELXSZ/2);
-      splash.setTranslateY(HEIGHT/2 - LABELYSZ/2);
-      root.getChildren().add(splash);
+      splashLabel.setText(message);
+      if (splash.getParent() == null) {
+         splashLabel.setStyle("-fx-text-fill: white; -fx-font: bold 20 \"serif\"; " +
+                              "-fx-padding: 20 20 20 20; -fx-text-alignment: center");
+         splash.setPrefSize(LABELXSZ, LABELYSZ);
+         splash.getChildren().add(splashLabel);
+         splash.setStyle("-fx-background-color: rgba(0, 100, 100, 0.5); -fx-background-radius: 10;");
+         splash.setTranslateX(WIDTH/2 - LABELXSZ/2);
+         splash.setTranslateY(HEIGHT/2 - LABELYSZ/2);
+         root.getChildren().add(splash);
+      }
+      splash.setVisible(true);
+      splash.toFront();
    }
 
+   // The HUD is built once; its labels follow the properties below
    private void createTopText(Group root) {
-      Label lives = new Label("Lives: " + currentLives);
-      Label level = new Label("Level: " + currentLevel);
-      Label score = new Label("Score: " + currentScore);
-      lives.setStyle("-fx-text-fill: white; -fx-font: bold 20 \"serif\"; -fx-padding: 10 10 10 10");
-      level.setStyle("-fx-text-fill: white; -fx-font: bold 20 \"serif\"; -fx-padding: 10 10 10 10");
-      score.setStyle("-fx-text-fill: white; -fx-font: bold 20 \"serif\"; -fx-padding: 10 10 10 10");
+      Label lives = new Label();
+      Label level = new Label();
+      Label score = new Label();
+      lives.textProperty().bind(livesShown.asString("Lives: %d"));
+      level.textProperty().bind(levelShown.asString("Level: %d"));
+      score.textProperty().bind(scoreShown.asString("Score: %d"));
+      for (Label label : new Label[] { lives, level, score }) {
+         label.setStyle("-fx-text-fill: white; -fx-font: bold 20 \"serif\"; -fx-padding: 10 10 10 10");
+         topText.getColumnConstraints().add(new ColumnConstraints(WIDTH/3));
+      }
       topText.add(lives, 0, 0);
       topText.add(level, 1, 0);
       topText.add(score, 2, 0);
-      topText.getColumnConstraints().add(new ColumnConstraints(WIDTH/3));
-      topText.getColumnConstraints().add(new ColumnConstraints(WIDTH/3));
-      topText.getColumnConstraints().add(new ColumnConstraints(WIDTH/3));
       topText.setHalignment(lives, HPos.LEFT);
       topText.setHalignment(level, HPos.CENTER);
       topText.setHalignment(score, HPos.RIGHT);
+      updateTopText();
       root.getChildren().add(topText);
    }
 
-   private void updateTopText(Group root) {
-      root.getChildren().remove(topText);
-      topText.getChildren().clear();
-      createTopText(root);
+   // Setting a property to its current value fires no change, so labels
+   // are only re-laid out when a number actually changes
+   private void updateTopText() {
+      long start = System.nanoTime();
+      livesShown.set(world.getLives());
+      levelShown.set(world.getLevel());
+      scoreShown.set(world.getScore());
+      hudNanos += System.nanoTime() - start;
+   }
+
+   private void createStatsOverlay(Group root) {
+      statsOverlay = new StatsOverlay(profiler);
+      statsOverlay.setTranslateX(10);
+      statsOverlay.setTranslateY(45);
+      root.getChildren().add(statsOverlay);
    }
 
    public static void main(String[] args) {
@@ -1,63 +1,41 @@
 /*
  * This is part of a simple breakout clone.
- * Brick.java is the Model for a game brick
+ * Brick.java is the View for a game brick; a pooled node (see BrickViewport)
+ * shows one brick after another
  * @author: Mickey Kim
  */
+import breakout.sim.BrickField;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 
 public class Brick extends Rectangle {
-   private final double width, height;
-   private double leftBounds, rightBounds, upperBounds, lowerBounds;
    private double arcWidth = 5;
    private double arcHeight = 5;
-   private int myHealth; // brick "health" : number of hits needed to break
+   private int index; // index of the brick shown in the BrickField
 
-   public Brick(double x, double y, Color color, double width, double height, int health) {
-      this.width = width;
-      this.height = height;
-      leftBounds = x;
-      rightBounds = x + width;
-      upperBounds = y;
-      lowerBounds = y + height;
-      myHealth = health;
-      setX(x);
-      setY(y);
-      setWidth(width);
-      setHeight(height);
+   public Brick(int index) {
+      this.index = index;
       setArcWidth(arcWidth);
       setArcHeight(arcHeight);
-      setFill(color);
-   }
-
-   // Getters for brick sides (bounds)
-   double getXLeft() {
-      double value = leftBounds;
-      return value;
    }
 
-   double getXRight() {
-      double value = rightBounds;
-      return value;
-   }
-   
-   double getYUpper() {
-      double value = upperBounds;
-      return value;
-   }
-
-   double getYLower() {
-      double value = lowerBounds;
-      return value;
+   // Take on the bounds and color of brick index for a new level
+   void reset(BrickField bricks, Color color) {
+      setX(bricks.getXLeft(index));
+      setY(bricks.getYUpper(index));
+      setWidth(bricks.getWidth(index));
+      setHeight(bricks.getHeight(index));
+      setFill(color);
+      setVisible(bricks.isAlive(index));
    }
 
-   // Getters and Setters for brick health
-   int getHealth() {
-      int returnValue = myHealth;
-      return returnValue;
+   // Take on another brick (a pooled node)
+   void show(int index, BrickField bricks, Color color) {
+      this.index = index;
+      reset(bricks, color);
    }
 
-   void setHealth(int newHealth) {
-      myHealth = newHealth;
+   int getIndex() {
+      return index;
    }
 }
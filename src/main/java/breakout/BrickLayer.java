@@ -0,0 +1,101 @@
+/*
+ * This is part of a simple breakout clone.
+ * BrickLayer.java is the cached View for the static part of the playfield:
+ * the background image and the brick field are painted onto one Canvas that
+ * keeps its pixels between frames, and only the rectangles of bricks that
+ * changed are repainted.
+ * @author: Mickey Kim
+ */
+import java.util.Arrays;
+import breakout.sim.BrickField;
+import breakout.sim.World;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+
+public class BrickLayer extends Canvas {
+   private static final double BRICK_ARC = 5; // same rounding as Brick
+   private final World world;
+   private final Color[] brickColors;
+   private final Image background;
+   private double[] dirty = new double[4 * 16]; // x, y, w, h of each rectangle to repaint
+   private int dirtyCount;
+   private boolean allDirty = true;
+
+   public BrickLayer(World world, Color[] brickColors, Image background) {
+      super(world.getConfig().width, world.getConfig().height);
+      this.world = world;
+      this.brickColors = brickColors;
+      this.background = background;
+   }
+
+   // Repaint the area of one brick (it was destroyed or changed)
+   void invalidate(int brick) {
+      if (allDirty) {
+         return;
+      }
+      BrickField bricks = world.getBricks();
+      if (dirtyCount * 4 == dirty.length) {
+         dirty = Arrays.copyOf(dirty, dirty.length * 2);
+      }
+      int d = dirtyCount++ * 4;
+      dirty[d] = bricks.getXLeft(brick);
+      dirty[d + 1] = bricks.getYUpper(brick);
+      dirty[d + 2] = bricks.getWidth(brick);
+      dirty[d + 3] = bricks.getHeight(brick);
+   }
+
+   // Repaint everything (a new level was laid out)
+   void invalidateAll() {
+      allDirty = true;
+      dirtyCount = 0;
+   }
+
+   // Bring the cached pixels up to date; does nothing on frames where no brick changed
+   void draw() {
+      GraphicsContext gc = getGraphicsContext2D();
+      if (allDirty) {
+         gc.clearRect(0, 0, getWidth(), getHeight());
+         gc.drawImage(background, 0, 0);
+         paintBricks(gc, 0, 0, getWidth(), getHeight());
+         allDirty = false;
+      } else {
+         for (int d = 0; d < dirtyCount * 4; d += 4) {
+            double x = dirty[d], y = dirty[d + 1], w = dirty[d + 2], h = dirty[d + 3];
+            gc.save();
+            gc.beginPath();
+            gc.rect(x, y, w, h);
+            gc.clip();
+            gc.clearRect(x, y, w, h);
+            gc.drawImage(background, x, y, w, h, x, y, w, h);
+            // bricks overlapping the rectangle are drawn again inside the clip
+            paintBricks(gc, x, y, x + w, y + h);
+            gc.restore();
+         }
+      }
+      dirtyCount = 0;
+   }
+
+   // Only the bricks in the grid cells the rectangle touches are looked at,
+   // so a small repaint costs the same however many bricks the level has
+   private void paintBricks(GraphicsContext gc, double minX, double minY, double maxX, double maxY) {
+      BrickField bricks = world.getBricks();
+      int found = world.bricksIn(minX, minY, maxX, maxY);
+      int[] results = world.getBricksFound();
+      int lastColor = -1;
+      for (int c = 0; c < found; c++) {
+         int i = results[c];
+         if (!bricks.isAlive(i) || bricks.getXRight(i) < minX || bricks.getXLeft(i) > maxX ||
+             bricks.getYLower(i) < minY || bricks.getYUpper(i) > maxY) {
+            continue;
+         }
+         if (bricks.getColor(i) != lastColor) {
+            lastColor = bricks.getColor(i);
+            gc.setFill(brickColors[Math.floorMod(lastColor, brickColors.length)]);
+         }
+         gc.fillRoundRect(bricks.getXLeft(i), bricks.getYUpper(i),
+                          bricks.getWidth(i), bricks.getHeight(i), BRICK_ARC, BRICK_ARC);
+      }
+   }
+}
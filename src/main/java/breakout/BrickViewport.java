@@ -0,0 +1,148 @@
+/*
+ * This is part of a simple breakout clone.
+ * BrickViewport.java is the View for the bricks of a level larger than the
+ * window (--scroll). Only the bricks in view, plus a margin, have a node;
+ * nodes come from a pool and go back to it when their brick scrolls out or is
+ * destroyed, so the node count follows the window's size, not the level's.
+ * The bricks in view are found through the World's brick grid.
+ * @author: Mickey Kim
+ */
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import breakout.sim.BrickField;
+import breakout.sim.World;
+import javafx.scene.Group;
+import javafx.scene.paint.Color;
+
+public class BrickViewport extends Group {
+   private static final double MARGIN = 120; // pixels around the window whose bricks get nodes early
+   private static final int NONE = -1;
+   private final World world;
+   private final Color[] colors;
+   private final IntConsumer pressed; // called with the brick index of a clicked node
+   // Nodes showing a brick now, and the free ones (kept as hidden children)
+   private Brick[] attached = new Brick[64];
+   private int attachedCount = 0;
+   private Brick[] free = new Brick[64];
+   private int freeCount = 0;
+   private int[] slotOf = new int[0]; // brick index to its slot in attached, or NONE
+   private int[] seen = new int[64]; // per attached slot: the update that last found its brick
+   private int updateId = 0;
+   private double minX, minY, maxX, maxY; // area covered by the last update
+   private boolean dirty = true;
+
+   public BrickViewport(World world, Color[] colors, IntConsumer pressed) {
+      this.world = world;
+      this.colors = colors;
+      this.pressed = pressed;
+      reset();
+   }
+
+   // A new layout: every node goes back to the pool
+   void reset() {
+      for (int k = 0; k < attachedCount; k++) {
+         release(attached[k]);
+      }
+      attachedCount = 0;
+      int size = world.getBricks().size();
+      if (slotOf.length != size) {
+         slotOf = new int[size];
+      }
+      Arrays.fill(slotOf, NONE);
+      dirty = true;
+   }
+
+   // A brick was destroyed; its node is freed by the next update
+   void invalidate(int brick) {
+      dirty = true;
+   }
+
+   // Give a node to every live brick that overlaps the window at (left, top),
+   // grown by the margin, and take back the rest
+   void update(double left, double top, double width, double height) {
+      double x0 = left - MARGIN, y0 = top - MARGIN;
+      double x1 = left + width + MARGIN, y1 = top + height + MARGIN;
+      if (!dirty && x0 == minX && y0 == minY && x1 == maxX && y1 == maxY) {
+         return;
+      }
+      minX = x0;
+      minY = y0;
+      maxX = x1;
+      maxY = y1;
+      dirty = false;
+      updateId++;
+      BrickField bricks = world.getBricks();
+      int found = world.bricksIn(x0, y0, x1, y1);
+      int[] results = world.getBricksFound();
+      // mark the nodes still in view, free the rest (keeping the slots packed),
+      // then give nodes to the bricks that came into view, so freed nodes are reused at once
+      for (int c = 0; c < found; c++) {
+         int slot = slotOf[results[c]];
+         if (slot != NONE && inView(bricks, results[c])) {
+            seen[slot] = updateId;
+         }
+      }
+      for (int k = attachedCount - 1; k >= 0; k--) {
+         if (seen[k] != updateId) {
+            Brick node = attached[k];
+            slotOf[node.getIndex()] = NONE;
+            release(node);
+            int last = --attachedCount;
+            if (k != last) {
+               attached[k] = attached[last];
+               seen[k] = seen[last];
+               slotOf[attached[k].getIndex()] = k;
+            }
+         }
+      }
+      for (int c = 0; c < found; c++) {
+         int brick = results[c];
+         if (slotOf[brick] == NONE && inView(bricks, brick)) {
+            int slot = attach(brick, bricks);
+            seen[slot] = updateId;
+         }
+      }
+   }
+
+   private boolean inView(BrickField bricks, int brick) {
+      return bricks.isAlive(brick) && bricks.getXRight(brick) >= minX && bricks.getXLeft(brick) <= maxX &&
+             bricks.getYLower(brick) >= minY && bricks.getYUpper(brick) <= maxY;
+   }
+
+   private int attach(int brick, BrickField bricks) {
+      Brick node;
+      if (freeCount > 0) {
+         node = free[--freeCount];
+      } else {
+         node = new Brick(brick);
+         node.setOnMousePressed(event -> pressed.accept(node.getIndex()));
+         getChildren().add(node);
+      }
+      node.show(brick, bricks, colors[Math.floorMod(bricks.getColor(brick), colors.length)]);
+      if (attachedCount == attached.length) {
+         attached = Arrays.copyOf(attached, attachedCount * 2);
+         seen = Arrays.copyOf(seen, attachedCount * 2);
+      }
+      attached[attachedCount] = node;
+      slotOf[brick] = attachedCount;
+      return attachedCount++;
+   }
+
+   private void release(Brick node) {
+      node.setVisible(false);
+      if (freeCount == free.length) {
+         free = Arrays.copyOf(free, freeCount * 2);
+      }
+      free[freeCount++] = node;
+   }
+
+   // Getters
+   int getAttachedCount() {
+      return attachedCount;
+   }
+
+   // Nodes made so far, shown or pooled
+   int getNodeCount() {
+      return getChildren().size();
+   }
+}
@@ -0,0 +1,41 @@
+/*
+ * This is part of a simple breakout clone.
+ * FrameEvent.java is the JDK Flight Recorder event for one rendered frame
+ * @author: Mickey Kim
+ */
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("breakout.Frame")
+@Label("Frame")
+@Category("Breakout")
+@Description("Time spent in each phase of one JavaFX frame")
+class FrameEvent extends Event {
+   @Label("Steps")
+   int steps;
+
+   @Label("Audio")
+   @Timespan(Timespan.NANOSECONDS)
+   long audio;
+
+   @Label("HUD")
+   @Timespan(Timespan.NANOSECONDS)
+   long hud;
+
+   @Label("Render")
+   @Timespan(Timespan.NANOSECONDS)
+   long render;
+
+   @Label("Frame Interval")
+   @Timespan(Timespan.NANOSECONDS)
+   long interval;
+
+   @Label("Input Latency")
+   @Description("Key event to the end of this frame, 0 if no key event reached this frame")
+   @Timespan(Timespan.NANOSECONDS)
+   long inputLatency;
+}
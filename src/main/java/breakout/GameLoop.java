@@ -0,0 +1,45 @@
+/*
+ * This is part of a simple breakout clone.
+ * GameLoop.java drives the game from the JavaFX pulse: the simulation is
+ * stepped at a fixed rate from a time accumulator, and each frame is drawn
+ * blended between the last two steps.
+ * Fixed timestep adapted from : https://gafferongames.com/post/fix_your_timestep/
+ * @author: Mickey Kim
+ */
+import java.util.function.DoubleConsumer;
+import javafx.animation.AnimationTimer;
+
+public class GameLoop extends AnimationTimer {
+   private static final int MAX_STEPS_PER_FRAME = 5; // catch-up cap after a stall
+   private final long stepNanos;
+   private final Runnable step;
+   private final DoubleConsumer render;
+   private long lastFrame = -1;
+   private long accumulator = 0;
+
+   public GameLoop(int tickRate, Runnable step, DoubleConsumer render) {
+      this.stepNanos = 1_000_000_000L / tickRate;
+      this.step = step;
+      this.render = render;
+   }
+
+   @Override
+   public void handle(long now) {
+      if (lastFrame < 0) {
+         lastFrame = now;
+      }
+      accumulator += now - lastFrame;
+      lastFrame = now;
+      int steps = 0;
+      while (accumulator >= stepNanos && steps < MAX_STEPS_PER_FRAME) {
+         step.run();
+         accumulator -= stepNanos;
+         steps++;
+      }
+      // After a long stall drop the backlog instead of fast-forwarding through it
+      if (accumulator >= stepNanos) {
+         accumulator %= stepNanos;
+      }
+      render.accept((double) accumulator / stepNanos);
+   }
+}
@@ -1,53 +1,35 @@
 /*
  * This is part of a simple breakout clone.
- * Paddle.java is the Model for the player controlled paddle
+ * Paddle.java is the View for the player controlled paddle
  * @author: Mickey Kim
  */
-import javafx.geometry.Dimension2D;
+import breakout.sim.World;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 
 public class Paddle extends Rectangle {
-   private final int PADDLEINIT_Y = -25;
-   private double height, width, paddleWidth, paddleHeight;
    private double arcWidth = 15;
    private double arcHeight = 15;
-   private double paddleX; // left edge of paddle
-   private double velX = 0;
+   private final World world;
 
-   public Paddle(Dimension2D playfieldDims, double pWidth, double pHeight) {
-      height = playfieldDims.getHeight();
-      width = playfieldDims.getWidth();
-      paddleX = width/2 - pWidth/2;
-      paddleWidth = pWidth;
-      paddleHeight = pHeight;
-      setX(paddleX);
-      setY(height - pHeight + PADDLEINIT_Y);
-      setWidth(pWidth);
-      setHeight(pHeight);
+   public Paddle(World world) {
+      this.world = world;
+      setWidth(world.getPaddleWidth());
+      setHeight(world.getPaddleHeight());
       setArcWidth(arcWidth);
       setArcHeight(arcHeight);
       setFill(Color.CYAN);
+      update(1);
    }
 
-   // Getters and Setters
-   void setVelX(double velocity) {
-      velX = velocity;
-   }
-
-   double getMidX() {
-      double locX = paddleX + paddleWidth/2;
-      return locX;
+   // Gameloop methods:
+   void update(double alpha) {
+      setX(world.getPaddleX(alpha));
+      setY(world.getPaddleY());
    }
 
-   // Gameloop methods:
-   void update() {
-      paddleX += velX;
-      if (paddleX < 0) {
-         paddleX = 0;
-      } else if (paddleX + paddleWidth > width) {
-         paddleX = width - paddleWidth;
-      }
-      setX(paddleX);
+   // Snap to the World's state after a reset, without interpolating from the old position
+   void reset() {
+      update(1);
    }
 }
@@ -0,0 +1,182 @@
+/*
+ * This is part of a simple breakout clone.
+ * ParticleLayer.java is the View for brick destruction effects. Particles live
+ * in preallocated primitive arrays and reuse dead slots through a free-list;
+ * each frame moves and plots all of them in one loop into an int buffer,
+ * which is copied to the screen through a PixelWriter (only the area they cover).
+ * Particles move in world coordinates, so with a scrolling camera they stay
+ * where their brick was; a particle out of the window is just not plotted.
+ * At the cap, a new particle replaces the oldest one still alive.
+ * @author: Mickey Kim
+ */
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+public class ParticleLayer extends ImageView {
+   public static final int MAX_PARTICLES = 50_000; // hard cap on live particles
+   private static final float LIFE = 0.8f; // seconds a particle lasts
+   private static final float GRAVITY = 900; // pixels per second squared
+   private static final float SPEED = 240; // top launch speed, pixels per second
+   private static final float MAX_DT = 0.1f; // longest frame gap simulated at once
+   private static final int SIZE = 2; // particles are SIZE x SIZE pixel squares
+   private static final PixelFormat<IntBuffer> FORMAT = PixelFormat.getIntArgbPreInstance();
+   private final int width, height;
+   private final int[] palette; // brick colors as ARGB
+   // Particle fields, indexed by slot
+   private final float[] x = new float[MAX_PARTICLES], y = new float[MAX_PARTICLES];
+   private final float[] velX = new float[MAX_PARTICLES], velY = new float[MAX_PARTICLES];
+   private final float[] life = new float[MAX_PARTICLES]; // seconds left, 0 when the slot is free
+   private final int[] color = new int[MAX_PARTICLES];
+   private final int[] nextFree = new int[MAX_PARTICLES]; // free-list links
+   private final int[] serial = new int[MAX_PARTICLES]; // spawn number of the particle in each slot
+   private int freeHead = -1;
+   private int used = 0; // slots at or above this have never been used
+   private int liveCount = 0;
+   private int nextSerial = 0;
+   // Spawn order ring, oldest first; entries of particles that already died are skipped
+   private final int[] ringSlot = new int[MAX_PARTICLES], ringSerial = new int[MAX_PARTICLES];
+   private int ringHead = 0, ringCount = 0;
+   // Screen buffer and the area particles were plotted in last frame
+   private final int[] pixels;
+   private final WritableImage image;
+   private final PixelWriter writer;
+   private int drawnMinX, drawnMinY, drawnMaxX = -1, drawnMaxY = -1; // empty when max < min
+   private final SplittableRandom random = new SplittableRandom();
+   private long lastFrame = -1;
+
+   public ParticleLayer(int width, int height, Color[] colors) {
+      this.width = width;
+      this.height = height;
+      drawnMinX = width;
+      drawnMinY = height;
+      palette = new int[colors.length];
+      for (int i = 0; i < colors.length; i++) {
+         palette[i] = 0xFF000000 | (int) (colors[i].getRed() * 255) << 16 |
+                      (int) (colors[i].getGreen() * 255) << 8 | (int) (colors[i].getBlue() * 255);
+      }
+      pixels = new int[width * height];
+      image = new WritableImage(width, height);
+      writer = image.getPixelWriter();
+      setImage(image);
+      setMouseTransparent(true);
+   }
+
+   // Throw count particles out of a destroyed brick's box (in world coordinates)
+   void burst(double left, double top, double w, double h, int colorIndex, int count) {
+      int argb = palette[Math.floorMod(colorIndex, palette.length)];
+      for (int n = 0; n < count; n++) {
+         int i = allocate();
+         double angle = random.nextDouble(2 * Math.PI);
+         double speed = random.nextDouble(SPEED);
+         x[i] = (float) (left + random.nextDouble(w));
+         y[i] = (float) (top + random.nextDouble(h));
+         velX[i] = (float) (Math.cos(angle) * speed);
+         velY[i] = (float) (Math.sin(angle) * speed);
+         life[i] = LIFE * (float) random.nextDouble(0.5, 1);
+         color[i] = argb;
+      }
+   }
+
+   private int allocate() {
+      if (ringCount == MAX_PARTICLES) {
+         // the oldest spawn leaves the ring; if it is still alive it is dropped
+         int slot = ringSlot[ringHead];
+         if (life[slot] > 0 && serial[slot] == ringSerial[ringHead]) {
+            release(slot);
+         }
+         ringHead = (ringHead + 1) % MAX_PARTICLES;
+         ringCount--;
+      }
+      int slot;
+      if (freeHead >= 0) {
+         slot = freeHead;
+         freeHead = nextFree[slot];
+      } else {
+         slot = used++;
+      }
+      serial[slot] = ++nextSerial;
+      int tail = (ringHead + ringCount++) % MAX_PARTICLES;
+      ringSlot[tail] = slot;
+      ringSerial[tail] = nextSerial;
+      liveCount++;
+      return slot;
+   }
+
+   private void release(int slot) {
+      life[slot] = 0;
+      nextFree[slot] = freeHead;
+      freeHead = slot;
+      liveCount--;
+   }
+
+   // Move, age and plot every particle, then copy the changed area to the screen;
+   // (offsetX, offsetY) is the world position of the window's top left corner
+   void frame(long now, double offsetX, double offsetY) {
+      float dt = lastFrame < 0 ? 0 : Math.min((now - lastFrame) / 1e9f, MAX_DT);
+      lastFrame = now;
+      if (liveCount == 0 && drawnMaxX < 0) {
+         return;
+      }
+      clear(drawnMinX, drawnMinY, drawnMaxX, drawnMaxY);
+      int minX = width, minY = height, maxX = -1, maxY = -1;
+      for (int i = 0; i < used; i++) {
+         if (life[i] <= 0) {
+            continue;
+         }
+         life[i] -= dt;
+         velY[i] += GRAVITY * dt;
+         x[i] += velX[i] * dt;
+         y[i] += velY[i] * dt;
+         if (life[i] <= 0) {
+            release(i);
+            continue;
+         }
+         int px = (int) Math.floor(x[i] - offsetX), py = (int) Math.floor(y[i] - offsetY);
+         if (px < 0 || py < 0 || px > width - SIZE || py > height - SIZE) {
+            continue;
+         }
+         // fade out over the last part of the life (premultiplied alpha)
+         int argb = color[i];
+         int alpha = Math.min((int) (life[i] * (255 * 2 / LIFE)), 255);
+         int pixel = alpha << 24 | ((argb >> 16 & 0xFF) * alpha / 255) << 16 |
+                     ((argb >> 8 & 0xFF) * alpha / 255) << 8 | (argb & 0xFF) * alpha / 255;
+         int row = py * width + px;
+         for (int dy = 0; dy < SIZE; dy++, row += width) {
+            for (int dx = 0; dx < SIZE; dx++) {
+               pixels[row + dx] = pixel;
+            }
+         }
+         minX = Math.min(minX, px);
+         minY = Math.min(minY, py);
+         maxX = Math.max(maxX, px + SIZE - 1);
+         maxY = Math.max(maxY, py + SIZE - 1);
+      }
+      // upload what was cleared and what was drawn
+      int upMinX = Math.min(minX, drawnMinX), upMinY = Math.min(minY, drawnMinY);
+      int upMaxX = Math.max(maxX, drawnMaxX), upMaxY = Math.max(maxY, drawnMaxY);
+      if (upMaxX >= upMinX && upMaxY >= upMinY) {
+         writer.setPixels(upMinX, upMinY, upMaxX - upMinX + 1, upMaxY - upMinY + 1, FORMAT,
+                          pixels, upMinY * width + upMinX, width);
+      }
+      drawnMinX = minX;
+      drawnMinY = minY;
+      drawnMaxX = maxX;
+      drawnMaxY = maxY;
+   }
+
+   private void clear(int minX, int minY, int maxX, int maxY) {
+      for (int row = minY; row <= maxY; row++) {
+         Arrays.fill(pixels, row * width + minX, row * width + maxX + 1, 0);
+      }
+   }
+
+   int getLiveCount() {
+      return liveCount;
+   }
+}
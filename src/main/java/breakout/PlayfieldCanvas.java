@@ -0,0 +1,61 @@
+/*
+ * This is part of a simple breakout clone.
+ * PlayfieldCanvas.java is the batched View for the playfield: bricks, paddle
+ * and ball are drawn straight from the World onto one Canvas each frame,
+ * instead of being kept as one scene graph node each. With a BrickLayer
+ * underneath it only draws the moving paddle and balls.
+ * @author: Mickey Kim
+ */
+import breakout.sim.BallSet;
+import breakout.sim.BrickField;
+import breakout.sim.World;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+public class PlayfieldCanvas extends Canvas {
+   private static final double BRICK_ARC  = 5; // same rounding as Brick
+   private static final double PADDLE_ARC = 15; // same rounding as Paddle
+   private final World world;
+   private final Color[] brickColors; // null when a BrickLayer draws the bricks
+
+   public PlayfieldCanvas(World world, Color[] brickColors) {
+      super(world.getConfig().width, world.getConfig().height);
+      this.world = world;
+      this.brickColors = brickColors;
+   }
+
+   // alpha is how far the frame lies between the last two simulation steps
+   void draw(double alpha) {
+      GraphicsContext gc = getGraphicsContext2D();
+      gc.clearRect(0, 0, getWidth(), getHeight());
+      if (brickColors != null) {
+         drawBricks(gc);
+      }
+      gc.setFill(Color.CYAN);
+      gc.fillRoundRect(world.getPaddleX(alpha), world.getPaddleY(),
+                       world.getPaddleWidth(), world.getPaddleHeight(), PADDLE_ARC, PADDLE_ARC);
+      double r = world.getBallRadius();
+      BallSet balls = world.getBalls();
+      gc.setFill(Color.WHITE);
+      for (int i = 0; i < balls.size(); i++) {
+         if (balls.isLive(i)) {
+            gc.fillOval(world.getBallX(i, alpha) - r, world.getBallY(i, alpha) - r, 2*r, 2*r);
+         }
+      }
+   }
+
+   private void drawBricks(GraphicsContext gc) {
+      BrickField bricks = world.getBricks();
+      int lastColor = -1;
+      for (int i = bricks.nextAlive(0); i >= 0 && i < bricks.size(); i = bricks.nextAlive(i + 1)) {
+         // bricks come in rows of one color, so the fill rarely changes
+         if (bricks.getColor(i) != lastColor) {
+            lastColor = bricks.getColor(i);
+            gc.setFill(brickColors[Math.floorMod(lastColor, brickColors.length)]);
+         }
+         gc.fillRoundRect(bricks.getXLeft(i), bricks.getYUpper(i),
+                          bricks.getWidth(i), bricks.getHeight(i), BRICK_ARC, BRICK_ARC);
+      }
+   }
+}
@@ -0,0 +1,72 @@
+/*
+ * This is part of a simple breakout clone.
+ * SimulationThread.java steps the game at a fixed rate on its own thread
+ * (--sim=thread), so FX pulses that run late never hold the physics back.
+ * Steps are scheduled on absolute times, not a sleep after each one.
+ * A step that throws stops the thread and the game, with the error printed,
+ * rather than leaving the window on its last frame.
+ * @author: Mickey Kim
+ */
+import java.util.concurrent.locks.LockSupport;
+import javafx.application.Platform;
+
+public class SimulationThread {
+   private static final int MAX_STEPS_BEHIND = 5; // catch-up cap after a stall, as in GameLoop
+   private final long stepNanos;
+   private final Runnable step;
+   private final Thread thread;
+   private volatile boolean running = true;
+
+   public SimulationThread(int tickRate, Runnable step) {
+      this.stepNanos = 1_000_000_000L / tickRate;
+      this.step = step;
+      thread = new Thread(this::run, "simulation");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MAX_PRIORITY);
+   }
+
+   public void start() {
+      thread.start();
+   }
+
+   // Returns once the step in progress, if any, is done
+   public void stop() throws InterruptedException {
+      running = false;
+      LockSupport.unpark(thread);
+      thread.join();
+   }
+
+   // False once stop() was called or a step failed
+   public boolean isRunning() {
+      return running;
+   }
+
+   private void run() {
+      long next = System.nanoTime();
+      try {
+         while (running) {
+            long now = System.nanoTime();
+            if (now < next) {
+               LockSupport.parkNanos(next - now);
+               continue;
+            }
+            step.run();
+            next += stepNanos;
+            // After a long stall drop the backlog instead of fast-forwarding through it
+            if (now - next >= MAX_STEPS_BEHIND * stepNanos) {
+               next = now;
+            }
+         }
+      } catch (RuntimeException | Error e) {
+         System.err.println("Simulation stopped: " + e);
+         e.printStackTrace();
+         Platform.exit();
+      } finally {
+         running = false; // senders stop waiting for a step that will not come
+      }
+   }
+
+   public long getStepNanos() {
+      return stepNanos;
+   }
+}
@@ -0,0 +1,30 @@
+/*
+ * This is part of a simple breakout clone.
+ * Sound.java lists the game's sound effects and how many copies of each may overlap
+ * @author: Mickey Kim
+ */
+// Free sounds downloaded from : https://www.noiseforfun.com
+// Win sound from : https://archive.org/details/FF7ACVictoryFanfareRingtoneperfectedMp3
+public enum Sound {
+   PADDLEHIT("audio/paddle_hit.wav", 2),
+   BRICKHIT("audio/brick_hit.wav", 4),
+   DIED("audio/died.wav", 1),
+   GAMEOVER("audio/gameover.wav", 1),
+   GAMEWIN("audio/win.wav", 1);
+
+   private final String path;
+   private final int maxVoices; // cap on simultaneous plays of this sound
+
+   Sound(String path, int maxVoices) {
+      this.path = path;
+      this.maxVoices = maxVoices;
+   }
+
+   String getPath() {
+      return path;
+   }
+
+   int getMaxVoices() {
+      return maxVoices;
+   }
+}
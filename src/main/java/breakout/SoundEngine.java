@@ -0,0 +1,39 @@
+/*
+ * This is part of a simple breakout clone.
+ * SoundEngine.java loads every Sound once and plays them from a fixed set of voices.
+ * Each voice is a preloaded AudioClip; a play request takes the next idle voice,
+ * and is dropped when all voices of that sound are busy.
+ * @author: Mickey Kim
+ */
+import java.net.URL;
+import java.util.EnumMap;
+import javafx.scene.media.AudioClip;
+
+public class SoundEngine {
+   private final EnumMap<Sound, AudioClip[]> voices = new EnumMap<>(Sound.class);
+   private final int[] nextVoice = new int[Sound.values().length];
+
+   public SoundEngine() {
+      for (Sound sound : Sound.values()) {
+         URL path = getClass().getResource(sound.getPath());
+         AudioClip[] clips = new AudioClip[sound.getMaxVoices()];
+         for (int i = 0; i < clips.length; i++) {
+            clips[i] = new AudioClip(path.toString());
+         }
+         voices.put(sound, clips);
+      }
+   }
+
+   public void play(Sound sound) {
+      AudioClip[] clips = voices.get(sound);
+      int first = nextVoice[sound.ordinal()];
+      for (int i = 0; i < clips.length; i++) {
+         int voice = (first + i) % clips.length;
+         if (!clips[voice].isPlaying()) {
+            clips[voice].play();
+            nextVoice[sound.ordinal()] = (voice + 1) % clips.length;
+            return;
+         }
+      }
+   }
+}
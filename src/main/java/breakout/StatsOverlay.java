@@ -0,0 +1,84 @@
+/*
+ * This is part of a simple breakout clone.
+ * StatsOverlay.java is a toggleable on-screen readout of frame rate, step
+ * and frame times, input latency (from the Profiler), garbage collector activity
+ * and, with a simulation thread, the frames it published that were dropped or reused.
+ * The text is rebuilt a few times a second, not every frame.
+ * @author: Mickey Kim
+ */
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import breakout.sim.FrameExchange;
+import breakout.sim.LatencyHistogram;
+import breakout.sim.Profiler;
+import javafx.scene.control.Label;
+
+public class StatsOverlay extends Label {
+   private static final long REFRESH_NANOS = 250_000_000L; // text refresh period
+   private final Profiler profiler;
+   private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+   private long windowStart = -1;
+   private int windowFrames = 0;
+   private long lastGcCount, lastGcMillis;
+   private FrameExchange frames; // set with --sim=thread
+   private long lastDropped, lastReused;
+
+   public StatsOverlay(Profiler profiler) {
+      this.profiler = profiler;
+      setStyle("-fx-text-fill: lime; -fx-font: 12 \"monospace\"; " +
+               "-fx-background-color: rgba(0, 0, 0, 0.6); -fx-padding: 4 4 4 4");
+      setVisible(false);
+      setMouseTransparent(true);
+   }
+
+   void setFrameExchange(FrameExchange frames) {
+      this.frames = frames;
+   }
+
+   // Call once per frame
+   void frame(long now) {
+      windowFrames++;
+      if (windowStart < 0) {
+         windowStart = now;
+      }
+      if (!isVisible() || now - windowStart < REFRESH_NANOS) {
+         return;
+      }
+      long gcCount = 0, gcMillis = 0;
+      for (GarbageCollectorMXBean gc : collectors) {
+         gcCount += Math.max(gc.getCollectionCount(), 0);
+         gcMillis += Math.max(gc.getCollectionTime(), 0);
+      }
+      double fps = windowFrames * 1e9 / (now - windowStart);
+      LatencyHistogram step = profiler.get(Profiler.Phase.STEP);
+      LatencyHistogram frame = profiler.get(Profiler.Phase.FRAME);
+      LatencyHistogram render = profiler.get(Profiler.Phase.RENDER);
+      LatencyHistogram input = profiler.get(Profiler.Phase.INPUT);
+      setText(String.format("FPS %5.1f%nstep   p50 %6.1f p99 %6.1f max %7.1f us%n" +
+                            "render p50 %6.1f p99 %6.1f max %7.1f us%n" +
+                            "frame  p50 %6.2f p99 %6.2f max %7.2f ms%n" +
+                            "input  p50 %6.2f p99 %6.2f max %7.2f ms%n" +
+                            "GC %d collections, %d ms (session %d, %d ms)",
+                            fps, step.percentile(0.5) / 1e3, step.percentile(0.99) / 1e3, step.getMax() / 1e3,
+                            render.percentile(0.5) / 1e3, render.percentile(0.99) / 1e3, render.getMax() / 1e3,
+                            frame.percentile(0.5) / 1e6, frame.percentile(0.99) / 1e6, frame.getMax() / 1e6,
+                            input.percentile(0.5) / 1e6, input.percentile(0.99) / 1e6, input.getMax() / 1e6,
+                            gcCount - lastGcCount, gcMillis - lastGcMillis, gcCount, gcMillis));
+      if (frames != null) {
+         long dropped = frames.getDropped(), reused = frames.getReused();
+         setText(getText() + String.format("%nframes %d dropped, %d reused (session %d, %d)",
+                                           dropped - lastDropped, reused - lastReused, dropped, reused));
+         lastDropped = dropped;
+         lastReused = reused;
+      }
+      lastGcCount = gcCount;
+      lastGcMillis = gcMillis;
+      windowStart = now;
+      windowFrames = 0;
+   }
+
+   void toggle() {
+      setVisible(!isVisible());
+   }
+}
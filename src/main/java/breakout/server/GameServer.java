@@ -0,0 +1,247 @@
+/*
+ * This is part of a simple breakout clone.
+ * GameServer.java hosts many games on one thread. A non-blocking NIO selector
+ * loop accepts clients, reads their input packets, steps every session at a
+ * fixed tick rate and sends each client a delta snapshot of its game.
+ * Usage: java -cp Breakout.jar breakout.server.GameServer [port] [hz] [balls]
+ * @author: Mickey Kim
+ */
+package breakout.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import breakout.sim.GameConfig;
+
+public class GameServer implements Runnable {
+   private static final int DEFAULT_PORT = 7777;
+   private static final int BACKLOG = 1024;
+   private static final int MAX_LATE_TICKS = 5; // ticks run back to back before the clock is reset
+   private final GameConfig config;
+   private final Selector selector;
+   private final ServerSocketChannel serverChannel;
+   private final List<Session> sessions = new ArrayList<>();
+   private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+   private volatile boolean running = true;
+   private int nextId = 0;
+   // Statistics, written by the server thread only
+   private volatile long ticks, sessionTicks, snapshots, bytesSent, busyNanos;
+
+   public GameServer(GameConfig config, int port) throws IOException {
+      this.config = config;
+      selector = Selector.open();
+      serverChannel = ServerSocketChannel.open();
+      serverChannel.bind(new InetSocketAddress(port), BACKLOG);
+      serverChannel.configureBlocking(false);
+      serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+   }
+
+   public int getPort() {
+      return serverChannel.socket().getLocalPort();
+   }
+
+   public void stop() {
+      running = false;
+      selector.wakeup();
+   }
+
+   @Override
+   public void run() {
+      long period = 1_000_000_000L / config.tickRate;
+      long nextTick = System.nanoTime() + period;
+      try {
+         while (running) {
+            long wait = nextTick - System.nanoTime();
+            if (wait > 0) {
+               selector.select(Math.max(wait / 1_000_000, 1));
+            } else {
+               selector.selectNow();
+            }
+            long busyStart = cpuTime();
+            handleKeys();
+            long now = System.nanoTime();
+            if (now - nextTick >= 0) {
+               tick();
+               nextTick += period;
+               if (now - nextTick > MAX_LATE_TICKS * period) {
+                  nextTick = now + period; // too far behind to catch up
+               }
+            }
+            busyNanos += cpuTime() - busyStart;
+         }
+      } catch (IOException e) {
+         System.err.println("Server stopped: " + e);
+      } finally {
+         for (Session session : sessions) {
+            closeQuietly(session.getChannel());
+         }
+         closeQuietly(serverChannel);
+         closeQuietly(selector);
+      }
+   }
+
+   private void handleKeys() {
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+         SelectionKey key = keys.next();
+         keys.remove();
+         if (!key.isValid()) {
+            continue;
+         }
+         if (key.isAcceptable()) {
+            accept();
+            continue;
+         }
+         Session session = (Session) key.attachment();
+         try {
+            if (key.isReadable() && !session.read()) {
+               close(session);
+               continue;
+            }
+            if (key.isWritable()) {
+               bytesSent += session.flush();
+               watchWrites(session);
+            }
+         } catch (IOException e) {
+            close(session);
+         }
+      }
+   }
+
+   // A failed accept (out of file descriptors, a client that reset at once)
+   // only costs that client; the server keeps selecting
+   private void accept() {
+      while (true) {
+         SocketChannel channel;
+         try {
+            channel = serverChannel.accept();
+         } catch (IOException e) {
+            System.err.println("Accept failed: " + e);
+            return;
+         }
+         if (channel == null) {
+            return;
+         }
+         try {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+         } catch (IOException e) {
+            System.err.println("Accept failed: " + e);
+            closeQuietly(channel);
+            continue;
+         }
+         GameConfig sessionConfig = config.copy();
+         sessionConfig.seed = config.seed + nextId;
+         Session session = new Session(nextId++, channel, sessionConfig);
+         try {
+            channel.register(selector, SelectionKey.OP_READ, session);
+            sessions.add(session);
+            session.welcome();
+            bytesSent += session.flush();
+            watchWrites(session);
+         } catch (IOException e) {
+            System.err.println("Accept failed: " + e);
+            close(session);
+         }
+      }
+   }
+
+   // Step every game once and send out the snapshots
+   private void tick() {
+      for (int i = sessions.size() - 1; i >= 0; i--) {
+         Session session = sessions.get(i);
+         session.step();
+         try {
+            if (session.queueSnapshot()) {
+               snapshots++;
+            }
+            bytesSent += session.flush();
+            watchWrites(session);
+         } catch (IOException e) {
+            close(session);
+         }
+      }
+      sessionTicks += sessions.size();
+      ticks++;
+   }
+
+   // Only ask the selector for writability while a client has bytes waiting
+   private void watchWrites(Session session) {
+      SelectionKey key = session.getChannel().keyFor(selector);
+      if (key != null && key.isValid()) {
+         key.interestOps(SelectionKey.OP_READ | (session.hasPendingOutput() ? SelectionKey.OP_WRITE : 0));
+      }
+   }
+
+   private void close(Session session) {
+      sessions.remove(session);
+      closeQuietly(session.getChannel());
+   }
+
+   private static void closeQuietly(Closeable closeable) {
+      try {
+         closeable.close();
+      } catch (IOException e) {
+         // already gone
+      }
+   }
+
+   private long cpuTime() {
+      return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+   }
+
+   // Getters for statistics
+   public int getSessionCount() {
+      return sessions.size();
+   }
+
+   public long getTicks() {
+      return ticks;
+   }
+
+   public long getSessionTicks() {
+      return sessionTicks;
+   }
+
+   public long getBytesSent() {
+      return bytesSent;
+   }
+
+   // Server thread CPU time spent stepping, encoding and I/O
+   public long getBusyNanos() {
+      return busyNanos;
+   }
+
+   public String report() {
+      double cpuPerSessionTick = busyNanos / (double) Math.max(sessionTicks, 1);
+      return String.format("%d sessions, %d ticks, %d snapshots, %.1f us CPU per session tick, " +
+                           "%.0f sessions per core at %d Hz, %.1f bytes per session tick",
+                           sessions.size(), ticks, snapshots, cpuPerSessionTick / 1e3,
+                           1e9 / config.tickRate / Math.max(cpuPerSessionTick, 1), config.tickRate,
+                           bytesSent / (double) Math.max(sessionTicks, 1));
+   }
+
+   public static void main(String[] args) throws IOException, InterruptedException {
+      GameConfig config = new GameConfig();
+      int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+      config.tickRate = args.length > 1 ? Integer.parseInt(args[1]) : config.tickRate;
+      config.ballCount = args.length > 2 ? Integer.parseInt(args[2]) : config.ballCount;
+      GameServer server = new GameServer(config, port);
+      Thread thread = new Thread(server, "game-server");
+      thread.start();
+      System.out.printf("listening on port %d at %d Hz%n", server.getPort(), config.tickRate);
+      while (thread.isAlive()) {
+         thread.join(5000);
+         System.out.println(server.report());
+      }
+   }
+}
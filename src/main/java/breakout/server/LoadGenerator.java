@@ -0,0 +1,180 @@
+/*
+ * This is part of a simple breakout clone.
+ * LoadGenerator.java connects many simulated clients to a GameServer over
+ * loopback. Each client decodes its snapshots and steers the paddle under
+ * the lowest ball, like Headless.autopilot does. Without a host:port it
+ * starts a server in the same process, and reports what the server used.
+ * Usage: java -cp Breakout.jar breakout.server.LoadGenerator [clients] [seconds] [host:port]
+ * @author: Mickey Kim
+ */
+package breakout.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import breakout.sim.GameConfig;
+import breakout.sim.Input;
+
+public class LoadGenerator {
+   // One simulated player
+   private static class Client {
+      private final SocketChannel channel;
+      private ByteBuffer in = ByteBuffer.allocate(4096);
+      private final ByteBuffer out = ByteBuffer.allocate(64);
+      private GameConfig config;
+      private Snapshot view;
+      private int lastBits = -1;
+      private long bytesReceived, snapshots, bricksDestroyed;
+
+      Client(SocketChannel channel) {
+         this.channel = channel;
+      }
+
+      // false once the server has closed the connection
+      boolean read() throws IOException {
+         int n = channel.read(in);
+         if (n < 0) {
+            return false;
+         }
+         bytesReceived += n;
+         in.flip();
+         int length;
+         while ((length = Protocol.nextFrame(in)) >= 0) {
+            int end = in.position() + Protocol.HEADER_BYTES + length;
+            in.position(in.position() + Protocol.HEADER_BYTES);
+            int type = in.get();
+            if (type == Protocol.WELCOME) {
+               in.getInt(); // session id
+               byte[] body = new byte[end - in.position()];
+               in.get(body);
+               config = GameConfig.read(new DataInputStream(new ByteArrayInputStream(body)));
+               view = new Snapshot(Math.max(config.ballCount, 1));
+            } else if (type == Protocol.SNAPSHOT && view != null) {
+               view.readDelta(in);
+               snapshots++;
+               bricksDestroyed += view.getDestroyedCount();
+               control();
+            }
+            in.position(end);
+         }
+         if (in.remaining() >= Protocol.HEADER_BYTES &&
+             in.getInt(in.position()) + Protocol.HEADER_BYTES > in.capacity()) {
+            ByteBuffer grown = ByteBuffer.allocate(Integer.highestOneBit(in.getInt(in.position())) * 4);
+            grown.put(in);
+            in = grown;
+         } else {
+            in.compact();
+         }
+         return true;
+      }
+
+      private void control() throws IOException {
+         int lowest = -1;
+         for (int i = 0; i < view.getBallCount(); i++) {
+            if (view.isBallLive(i) && (lowest < 0 || view.getBallY(i) > view.getBallY(lowest))) {
+               lowest = i;
+            }
+         }
+         int bits = view.hasRoundStarted() ? 0 : Input.LAUNCH_BIT;
+         if (lowest >= 0) {
+            double offset = view.getBallX(lowest) - (view.getPaddleX() + config.paddleWidth / 2);
+            if (Math.abs(offset) >= config.paddleSpeed) {
+               bits |= offset > 0 ? Input.RIGHT_BIT : Input.LEFT_BIT;
+            }
+         }
+         if (bits != lastBits) {
+            lastBits = bits;
+            int start = Protocol.beginFrame(out, Protocol.INPUT);
+            out.put((byte) bits);
+            Protocol.endFrame(out, start);
+            out.flip();
+            channel.write(out);
+            out.compact();
+         }
+      }
+   }
+
+   public static void main(String[] args) throws IOException, InterruptedException {
+      int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+      double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 10;
+      GameServer server = null;
+      Thread serverThread = null;
+      InetSocketAddress address;
+      if (args.length > 2) {
+         String[] hostPort = args[2].split(":");
+         address = new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1]));
+      } else {
+         server = new GameServer(new GameConfig(), 0);
+         serverThread = new Thread(server, "game-server");
+         serverThread.start();
+         address = new InetSocketAddress("localhost", server.getPort());
+      }
+
+      Selector selector = Selector.open();
+      Client[] clients = new Client[clientCount];
+      for (int i = 0; i < clientCount; i++) {
+         SocketChannel channel = SocketChannel.open(address);
+         channel.configureBlocking(false);
+         channel.socket().setTcpNoDelay(true);
+         clients[i] = new Client(channel);
+         channel.register(selector, SelectionKey.OP_READ, clients[i]);
+      }
+      System.out.printf("%d clients connected to %s%n", clientCount, address);
+
+      // measure from here, after every client is in
+      long serverTicks = server == null ? 0 : server.getTicks();
+      long serverSessionTicks = server == null ? 0 : server.getSessionTicks();
+      long serverBusy = server == null ? 0 : server.getBusyNanos();
+      long serverBytes = server == null ? 0 : server.getBytesSent();
+      long start = System.nanoTime();
+      long end = start + (long) (seconds * 1e9);
+      int open = clientCount;
+      while (open > 0 && System.nanoTime() < end) {
+         selector.select(100);
+         Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+         while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            Client client = (Client) key.attachment();
+            if (!client.read()) {
+               key.cancel();
+               client.channel.close();
+               open--;
+            }
+         }
+      }
+      double elapsed = (System.nanoTime() - start) / 1e9;
+
+      long bytes = 0, snapshots = 0, bricks = 0;
+      for (Client client : clients) {
+         bytes += client.bytesReceived;
+         snapshots += client.snapshots;
+         bricks += client.bricksDestroyed;
+         client.channel.close();
+      }
+      selector.close();
+      System.out.printf("clients: %.0f snapshots/s each, %.1f bytes per snapshot, %d bricks destroyed%n",
+                        snapshots / elapsed / clientCount, bytes / (double) Math.max(snapshots, 1), bricks);
+      if (server != null) {
+         long ticks = server.getTicks() - serverTicks;
+         long sessionTicks = server.getSessionTicks() - serverSessionTicks;
+         double busy = server.getBusyNanos() - serverBusy;
+         double cpuPerSessionTick = busy / Math.max(sessionTicks, 1);
+         int hz = new GameConfig().tickRate;
+         System.out.printf("server: %.1f ticks/s (target %d), %.1f%% of a core busy%n",
+                           ticks / elapsed, hz, busy / elapsed / 1e7);
+         System.out.printf("server: %.2f us CPU per session tick, %.0f sessions per core at %d Hz, " +
+                           "%.1f bytes per session tick%n",
+                           cpuPerSessionTick / 1e3, 1e9 / hz / Math.max(cpuPerSessionTick, 1), hz,
+                           (server.getBytesSent() - serverBytes) / (double) Math.max(sessionTicks, 1));
+         server.stop();
+         serverThread.join();
+      }
+   }
+}
@@ -0,0 +1,71 @@
+/*
+ * This is part of a simple breakout clone.
+ * Protocol.java is the wire format between GameServer and its clients.
+ *
+ * Every message is a frame (big endian): body length (int), then the body,
+ * whose first byte is the message type.
+ *   WELCOME  server to client, once : session id (int), GameConfig (see GameConfig.write)
+ *   SNAPSHOT server to client, every tick : see Snapshot.writeDelta
+ *   INPUT    client to server, on change : input byte in the Input bit layout
+ * @author: Mickey Kim
+ */
+package breakout.server;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+public final class Protocol {
+   public static final int WELCOME  = 1;
+   public static final int SNAPSHOT = 2;
+   public static final int INPUT    = 3;
+   public static final int HEADER_BYTES = 4; // frame length prefix
+   public static final int MAX_INPUT_FRAME = 16; // longest body a client may send
+   public static final int MAX_VARINT = 5; // worst case bytes of one varint
+
+   private Protocol() {
+   }
+
+   // Reserve room for the length of a frame and write its type; returns where the frame starts
+   public static int beginFrame(ByteBuffer out, int type) {
+      int start = out.position();
+      out.putInt(0);
+      out.put((byte) type);
+      return start;
+   }
+
+   public static void endFrame(ByteBuffer out, int start) {
+      out.putInt(start, out.position() - start - HEADER_BYTES);
+   }
+
+   // Length of the next whole frame body in in (between position and limit), or -1 if it has not all arrived.
+   // A negative length can never arrive, so it is refused rather than waited for
+   public static int nextFrame(ByteBuffer in) throws ProtocolException {
+      if (in.remaining() < HEADER_BYTES) {
+         return -1;
+      }
+      int length = in.getInt(in.position());
+      if (length < 0) {
+         throw new ProtocolException("Negative frame length " + length);
+      }
+      return in.remaining() - HEADER_BYTES < length ? -1 : length;
+   }
+
+   public static void putVarInt(ByteBuffer out, int value) {
+      while ((value & ~0x7F) != 0) {
+         out.put((byte) ((value & 0x7F) | 0x80));
+         value >>>= 7;
+      }
+      out.put((byte) value);
+   }
+
+   public static int getVarInt(ByteBuffer in) {
+      int value = 0;
+      for (int shift = 0; ; shift += 7) {
+         byte b = in.get();
+         value |= (b & 0x7F) << shift;
+         if (b >= 0) {
+            return value;
+         }
+      }
+   }
+}
@@ -0,0 +1,131 @@
+/*
+ * This is part of a simple breakout clone.
+ * Session.java is one client's game on the server: its World, the input it
+ * last sent, and the buffers and snapshot baseline of its connection.
+ * @author: Mickey Kim
+ */
+package breakout.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import breakout.sim.GameConfig;
+import breakout.sim.Input;
+import breakout.sim.World;
+
+class Session {
+   private static final int DIRECTION_BITS = Input.LEFT_BIT | Input.RIGHT_BIT;
+   private final int id;
+   private final SocketChannel channel;
+   private final GameConfig config;
+   private final World world;
+   private final Input input = new Input();
+   private int held; // direction bits from the last INPUT
+   private int presses; // launch and extra life bits not yet applied by a step
+   private final ByteBuffer in = ByteBuffer.allocate(256);
+   private ByteBuffer out = ByteBuffer.allocateDirect(4096); // frames not yet written, in write mode
+   private final Snapshot current, sent; // sent is what the client has now
+   private int layout;
+
+   Session(int id, SocketChannel channel, GameConfig config) {
+      this.id = id;
+      this.channel = channel;
+      this.config = config;
+      this.world = new World(config);
+      this.current = new Snapshot(world.getBalls().capacity());
+      this.sent = new Snapshot(world.getBalls().capacity());
+      this.layout = world.getLayoutCount();
+   }
+
+   void welcome() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      config.write(new DataOutputStream(bytes));
+      int start = Protocol.beginFrame(out, Protocol.WELCOME);
+      out.putInt(id);
+      out.put(bytes.toByteArray());
+      Protocol.endFrame(out, start);
+   }
+
+   // Read what has arrived; false if the client closed or broke the protocol
+   // (a ProtocolException if it sent a frame length that can never be valid)
+   boolean read() throws IOException {
+      if (channel.read(in) < 0) {
+         return false;
+      }
+      in.flip();
+      int length;
+      while ((length = Protocol.nextFrame(in)) >= 0) {
+         if (length < 1 || length > Protocol.MAX_INPUT_FRAME) {
+            return false;
+         }
+         int end = in.position() + Protocol.HEADER_BYTES + length;
+         in.position(in.position() + Protocol.HEADER_BYTES);
+         if (in.get() == Protocol.INPUT && length >= 2) {
+            int bits = in.get();
+            held = bits & DIRECTION_BITS;
+            presses |= bits & ~DIRECTION_BITS;
+         }
+         in.position(end);
+      }
+      if (in.remaining() >= Protocol.HEADER_BYTES &&
+          in.getInt(in.position()) > Protocol.MAX_INPUT_FRAME) {
+         return false;
+      }
+      in.compact();
+      return true;
+   }
+
+   // Step the game with the latest input, as Breakout.gameEvents does
+   void step() {
+      input.setBits(held | presses);
+      presses = 0;
+      world.step(input);
+      if (world.getLayoutCount() != layout) {
+         layout = world.getLayoutCount();
+         current.clearDestroyed(); // the client lays out the new bricks itself
+      }
+      for (int k = 0; k < world.getDestroyedCount(); k++) {
+         current.addDestroyed(world.getDestroyed(k));
+      }
+   }
+
+   // Queue a snapshot unless the client has not taken the last one yet; it
+   // then gets one delta covering both ticks instead
+   boolean queueSnapshot() {
+      if (out.position() > 0) {
+         return false;
+      }
+      current.capture(world);
+      int needed = Protocol.HEADER_BYTES + 1 + current.maxBytes();
+      if (needed > out.capacity()) {
+         out = ByteBuffer.allocateDirect(Integer.highestOneBit(needed) * 2);
+      }
+      int start = Protocol.beginFrame(out, Protocol.SNAPSHOT);
+      current.writeDelta(sent, out);
+      Protocol.endFrame(out, start);
+      return true;
+   }
+
+   // Write queued frames; returns the bytes written
+   int flush() throws IOException {
+      out.flip();
+      int written = channel.write(out);
+      out.compact();
+      return written;
+   }
+
+   boolean hasPendingOutput() {
+      return out.position() > 0;
+   }
+
+   SocketChannel getChannel() {
+      return channel;
+   }
+
+   // Input bits the next step will use
+   int getInputBits() {
+      return held | presses;
+   }
+}
@@ -0,0 +1,268 @@
+/*
+ * This is part of a simple breakout clone.
+ * Snapshot.java is the state of one game that clients render: paddle, balls,
+ * score, lives, level and the bricks destroyed since the last snapshot.
+ * Snapshots are sent as deltas against the last one the client received;
+ * TCP delivers them in order, so that is always the client's own copy.
+ *
+ * SNAPSHOT body after the type byte:
+ *   tick delta (varint), field mask (byte), then for each bit set, in order:
+ *   PADDLE float x | SCORE, LIVES, LEVEL, LAYOUT varint | ROUND byte
+ *   BALLS  varint count, then per ball a mask byte and float x, y as flagged
+ *   BRICKS varint count, then varint brick indices
+ * @author: Mickey Kim
+ */
+package breakout.server;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import breakout.sim.BallSet;
+import breakout.sim.World;
+
+public class Snapshot {
+   // Field mask bits
+   static final int PADDLE = 1;
+   static final int SCORE  = 1 << 1;
+   static final int LIVES  = 1 << 2;
+   static final int LEVEL  = 1 << 3;
+   static final int ROUND  = 1 << 4;
+   static final int LAYOUT = 1 << 5; // bricks were laid out again (new level or new game)
+   static final int BALLS  = 1 << 6;
+   static final int BRICKS = 1 << 7;
+   // Per ball mask bits
+   static final int BALL_X    = 1;
+   static final int BALL_Y    = 1 << 1;
+   static final int BALL_LIVE = 1 << 2; // liveness changed; the new value is BALL_IS_LIVE
+   static final int BALL_IS_LIVE = 1 << 3;
+   static final int BALL_BYTES = 9; // worst case per ball
+   private long tick;
+   private float paddleX;
+   private int score, lives, level, layout;
+   private boolean roundStarted;
+   private int ballCount;
+   private final float[] ballX, ballY;
+   private final boolean[] ballLive;
+   private int[] destroyed = new int[16];
+   private int destroyedCount;
+
+   public Snapshot(int ballCapacity) {
+      ballX = new float[ballCapacity];
+      ballY = new float[ballCapacity];
+      ballLive = new boolean[ballCapacity];
+   }
+
+   // Take everything but the destroyed bricks from the World
+   public void capture(World world) {
+      tick = world.getTick();
+      paddleX = (float) world.getPaddleX();
+      score = world.getScore();
+      lives = world.getLives();
+      level = world.getLevel();
+      layout = world.getLayoutCount();
+      roundStarted = world.hasRoundStarted();
+      BallSet balls = world.getBalls();
+      ballCount = balls.size();
+      for (int i = 0; i < ballCount; i++) {
+         ballX[i] = (float) balls.getX(i);
+         ballY[i] = (float) balls.getY(i);
+         ballLive[i] = balls.isLive(i);
+      }
+   }
+
+   // Bricks destroyed since the last snapshot was written
+   public void addDestroyed(int brick) {
+      if (destroyedCount == destroyed.length) {
+         destroyed = Arrays.copyOf(destroyed, destroyedCount * 2);
+      }
+      destroyed[destroyedCount++] = brick;
+   }
+
+   public void clearDestroyed() {
+      destroyedCount = 0;
+   }
+
+   // Largest SNAPSHOT body this snapshot can need
+   public int maxBytes() {
+      return 64 + ballCount * BALL_BYTES + destroyedCount * Protocol.MAX_VARINT;
+   }
+
+   // Write the fields that differ from base, then bring base up to date and
+   // clear the destroyed bricks sent
+   public void writeDelta(Snapshot base, ByteBuffer out) {
+      Protocol.putVarInt(out, (int) (tick - base.tick));
+      int mask = (paddleX != base.paddleX ? PADDLE : 0) | (score != base.score ? SCORE : 0) |
+                 (lives != base.lives ? LIVES : 0) | (level != base.level ? LEVEL : 0) |
+                 (roundStarted != base.roundStarted ? ROUND : 0) | (layout != base.layout ? LAYOUT : 0) |
+                 (ballsDiffer(base) ? BALLS : 0) | (destroyedCount > 0 ? BRICKS : 0);
+      out.put((byte) mask);
+      if ((mask & PADDLE) != 0) {
+         out.putFloat(paddleX);
+      }
+      if ((mask & SCORE) != 0) {
+         Protocol.putVarInt(out, score);
+      }
+      if ((mask & LIVES) != 0) {
+         Protocol.putVarInt(out, lives);
+      }
+      if ((mask & LEVEL) != 0) {
+         Protocol.putVarInt(out, level);
+      }
+      if ((mask & LAYOUT) != 0) {
+         Protocol.putVarInt(out, layout);
+      }
+      if ((mask & ROUND) != 0) {
+         out.put((byte) (roundStarted ? 1 : 0));
+      }
+      if ((mask & BALLS) != 0) {
+         Protocol.putVarInt(out, ballCount);
+         for (int i = 0; i < ballCount; i++) {
+            boolean known = i < base.ballCount;
+            int ball = (!known || ballX[i] != base.ballX[i] ? BALL_X : 0) |
+                       (!known || ballY[i] != base.ballY[i] ? BALL_Y : 0) |
+                       (!known || ballLive[i] != base.ballLive[i] ? BALL_LIVE : 0) |
+                       (ballLive[i] ? BALL_IS_LIVE : 0);
+            out.put((byte) ball);
+            if ((ball & BALL_X) != 0) {
+               out.putFloat(ballX[i]);
+            }
+            if ((ball & BALL_Y) != 0) {
+               out.putFloat(ballY[i]);
+            }
+         }
+      }
+      if ((mask & BRICKS) != 0) {
+         Protocol.putVarInt(out, destroyedCount);
+         for (int k = 0; k < destroyedCount; k++) {
+            Protocol.putVarInt(out, destroyed[k]);
+         }
+      }
+      base.copyFrom(this);
+      destroyedCount = 0;
+   }
+
+   private boolean ballsDiffer(Snapshot base) {
+      if (ballCount != base.ballCount) {
+         return true;
+      }
+      for (int i = 0; i < ballCount; i++) {
+         if (ballX[i] != base.ballX[i] || ballY[i] != base.ballY[i] || ballLive[i] != base.ballLive[i]) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private void copyFrom(Snapshot other) {
+      tick = other.tick;
+      paddleX = other.paddleX;
+      score = other.score;
+      lives = other.lives;
+      level = other.level;
+      layout = other.layout;
+      roundStarted = other.roundStarted;
+      ballCount = other.ballCount;
+      System.arraycopy(other.ballX, 0, ballX, 0, ballCount);
+      System.arraycopy(other.ballY, 0, ballY, 0, ballCount);
+      System.arraycopy(other.ballLive, 0, ballLive, 0, ballCount);
+   }
+
+   // Apply a delta written by writeDelta; the destroyed bricks it carried
+   // replace the previous ones
+   public void readDelta(ByteBuffer in) {
+      tick += Protocol.getVarInt(in);
+      int mask = in.get() & 0xFF;
+      if ((mask & PADDLE) != 0) {
+         paddleX = in.getFloat();
+      }
+      if ((mask & SCORE) != 0) {
+         score = Protocol.getVarInt(in);
+      }
+      if ((mask & LIVES) != 0) {
+         lives = Protocol.getVarInt(in);
+      }
+      if ((mask & LEVEL) != 0) {
+         level = Protocol.getVarInt(in);
+      }
+      if ((mask & LAYOUT) != 0) {
+         layout = Protocol.getVarInt(in);
+      }
+      if ((mask & ROUND) != 0) {
+         roundStarted = in.get() != 0;
+      }
+      if ((mask & BALLS) != 0) {
+         ballCount = Math.min(Protocol.getVarInt(in), ballX.length);
+         for (int i = 0; i < ballCount; i++) {
+            int ball = in.get();
+            if ((ball & BALL_X) != 0) {
+               ballX[i] = in.getFloat();
+            }
+            if ((ball & BALL_Y) != 0) {
+               ballY[i] = in.getFloat();
+            }
+            if ((ball & BALL_LIVE) != 0) {
+               ballLive[i] = (ball & BALL_IS_LIVE) != 0;
+            }
+         }
+      }
+      destroyedCount = 0;
+      if ((mask & BRICKS) != 0) {
+         int count = Protocol.getVarInt(in);
+         for (int k = 0; k < count; k++) {
+            addDestroyed(Protocol.getVarInt(in));
+         }
+      }
+   }
+
+   // Getters
+   public long getTick() {
+      return tick;
+   }
+
+   public float getPaddleX() {
+      return paddleX;
+   }
+
+   public int getScore() {
+      return score;
+   }
+
+   public int getLives() {
+      return lives;
+   }
+
+   public int getLevel() {
+      return level;
+   }
+
+   public int getLayout() {
+      return layout;
+   }
+
+   public boolean hasRoundStarted() {
+      return roundStarted;
+   }
+
+   public int getBallCount() {
+      return ballCount;
+   }
+
+   public float getBallX(int i) {
+      return ballX[i];
+   }
+
+   public float getBallY(int i) {
+      return ballY[i];
+   }
+
+   public boolean isBallLive(int i) {
+      return ballLive[i];
+   }
+
+   public int getDestroyedCount() {
+      return destroyedCount;
+   }
+
+   public int getDestroyed(int k) {
+      return destroyed[k];
+   }
+}
@@ -0,0 +1,159 @@
+/*
+ * This is part of a simple breakout clone.
+ * BallSet.java is the Model for every ball in play, kept as parallel
+ * primitive arrays so thousands of balls update in one tight loop.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class BallSet {
+   private final double[] x, y, velX, velY;
+   private final double[] prevX, prevY; // positions at the start of the step
+   private final boolean[] live;
+   private int count; // balls spawned this round
+   private int liveCount; // balls still in play
+
+   public BallSet(int capacity) {
+      x = new double[capacity];
+      y = new double[capacity];
+      velX = new double[capacity];
+      velY = new double[capacity];
+      prevX = new double[capacity];
+      prevY = new double[capacity];
+      live = new boolean[capacity];
+   }
+
+   // Spawn n balls at one point, fanned out between -spread and +spread
+   // radians from straight up. A single ball keeps the classic 45 degree serve.
+   public void reset(int n, double startX, double startY, double speed, double spread) {
+      count = Math.min(n, x.length);
+      liveCount = count;
+      Arrays.fill(live, 0, count, true);
+      Arrays.fill(live, count, live.length, false);
+      for (int i = 0; i < count; i++) {
+         x[i] = prevX[i] = startX;
+         y[i] = prevY[i] = startY;
+         if (count == 1) {
+            velX[i] = speed;
+            velY[i] = -speed;
+         } else {
+            double angle = -spread + 2 * spread * i / (count - 1);
+            double diagonal = speed * Math.sqrt(2);
+            velX[i] = diagonal * Math.sin(angle);
+            velY[i] = -diagonal * Math.cos(angle);
+         }
+      }
+   }
+
+   // Remember where every ball started the step (for render interpolation)
+   public void savePositions() {
+      System.arraycopy(x, 0, prevX, 0, count);
+      System.arraycopy(y, 0, prevY, 0, count);
+   }
+
+   public void set(int i, double newX, double newY, double newVelX, double newVelY) {
+      x[i] = newX;
+      y[i] = newY;
+      velX[i] = newVelX;
+      velY[i] = newVelY;
+   }
+
+   public void kill(int i) {
+      if (live[i]) {
+         live[i] = false;
+         liveCount--;
+      }
+   }
+
+   // Every ball of the round, for World.writeState; a restored ball starts
+   // the next frame where it is, with nothing to interpolate from
+   void writeState(ByteBuffer out) {
+      out.putInt(count);
+      for (int i = 0; i < count; i++) {
+         out.putDouble(x[i]).putDouble(y[i]).putDouble(velX[i]).putDouble(velY[i]);
+         out.put((byte) (live[i] ? 1 : 0));
+      }
+   }
+
+   void readState(ByteBuffer in) {
+      count = in.getInt();
+      liveCount = 0;
+      for (int i = 0; i < count; i++) {
+         x[i] = in.getDouble();
+         y[i] = in.getDouble();
+         velX[i] = in.getDouble();
+         velY[i] = in.getDouble();
+         prevX[i] = x[i];
+         prevY[i] = y[i];
+         live[i] = in.get() != 0;
+         liveCount += live[i] ? 1 : 0;
+      }
+      Arrays.fill(live, count, live.length, false);
+   }
+
+   int maxStateBytes() {
+      return 4 + x.length * (4 * 8 + 1);
+   }
+
+   // Start-of-step positions of the balls in writeState, for World.writeMotion
+   void writeMotion(ByteBuffer out) {
+      for (int i = 0; i < count; i++) {
+         out.putDouble(prevX[i]).putDouble(prevY[i]);
+      }
+   }
+
+   void readMotion(ByteBuffer in) {
+      for (int i = 0; i < count; i++) {
+         prevX[i] = in.getDouble();
+         prevY[i] = in.getDouble();
+      }
+   }
+
+   int maxMotionBytes() {
+      return x.length * 2 * 8;
+   }
+
+   // Getters
+   public double getX(int i) {
+      return x[i];
+   }
+
+   public double getY(int i) {
+      return y[i];
+   }
+
+   public double getVelX(int i) {
+      return velX[i];
+   }
+
+   public double getVelY(int i) {
+      return velY[i];
+   }
+
+   public double getPrevX(int i) {
+      return prevX[i];
+   }
+
+   public double getPrevY(int i) {
+      return prevY[i];
+   }
+
+   public boolean isLive(int i) {
+      return live[i];
+   }
+
+   public int size() {
+      return count;
+   }
+
+   public int liveCount() {
+      return liveCount;
+   }
+
+   public int capacity() {
+      return x.length;
+   }
+}
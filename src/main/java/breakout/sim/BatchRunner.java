@@ -0,0 +1,213 @@
+/*
+ * This is part of a simple breakout clone.
+ * BatchRunner.java plays many independent headless games at once on a
+ * work-stealing ForkJoinPool, one game per task, and reports statistics
+ * for every parameter set as CSV.
+ * Usage: java -cp Breakout.jar breakout.sim.BatchRunner [key=value ...]
+ *   ballSpeed, paddleSpeed, paddleXMod, brickRows, brickCols, balls :
+ *       a value, a list "a,b,c" or a range "from:to:step" (all combinations are run)
+ *   games=N       games per parameter set (default 16), each with its own seed
+ *   minutes=M     game time per game (default 10)
+ *   threads=T     worker threads (default: all cores)
+ *   reaction=R    controller reaction time in steps (default 4)
+ *   aimError=E    controller aim error in pixels (default 30)
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class BatchRunner {
+   private static final int SPEED_SAMPLE_TICKS = 10; // steps between ball speed samples
+   private static final int BASE_TICK_RATE = 60;
+
+   // Play one game for maxTicks steps and collect its statistics
+   public static GameStats play(GameConfig config, PaddleController controller, long maxTicks) {
+      GameStats stats = new GameStats();
+      World world = new World(config);
+      long[] levelStart = new long[1];
+      world.setListener(new WorldListener() {
+         @Override
+         public void ballLost() {
+            stats.addLifeLost();
+         }
+
+         @Override
+         public void gameOver(int finalScore) {
+            stats.addLifeLost();
+            levelStart[0] = world.getTick();
+         }
+
+         @Override
+         public void levelCleared() {
+            stats.addClear(world.getTick() - levelStart[0]);
+            levelStart[0] = world.getTick();
+         }
+      });
+      Input input = new Input();
+      double toBaseRate = (double) config.tickRate / BASE_TICK_RATE;
+      for (long t = 0; t < maxTicks; t++) {
+         controller.control(world, input);
+         world.step(input);
+         input.clearPresses();
+         if (t % SPEED_SAMPLE_TICKS == 0 && world.hasRoundStarted()) {
+            BallSet balls = world.getBalls();
+            for (int i = 0; i < balls.size(); i++) {
+               if (balls.isLive(i)) {
+                  stats.addSpeed(Math.hypot(balls.getVelX(i), balls.getVelY(i)) * toBaseRate);
+               }
+            }
+         }
+      }
+      stats.addGame(maxTicks);
+      return stats;
+   }
+
+   // Play gamesPerConfig games of every config and merge the results per config
+   public static GameStats[] run(List<GameConfig> configs, int gamesPerConfig, long maxTicks,
+                                 int threads, int reactionTicks, double aimError) {
+      GameStats[] results = new GameStats[configs.size() * gamesPerConfig];
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+         pool.invoke(new Games(0, results.length, results, configs, gamesPerConfig, maxTicks,
+                               reactionTicks, aimError));
+      } finally {
+         pool.shutdown();
+      }
+      GameStats[] merged = new GameStats[configs.size()];
+      for (int c = 0; c < merged.length; c++) {
+         merged[c] = new GameStats();
+         for (int g = 0; g < gamesPerConfig; g++) {
+            merged[c].merge(results[c * gamesPerConfig + g]);
+         }
+      }
+      return merged;
+   }
+
+   // Splits the game range in half until single games are left, so idle
+   // workers can steal the other halves
+   private static class Games extends RecursiveAction {
+      private static final long serialVersionUID = 1L; // ForkJoinTask is Serializable; never serialized here
+      private final int from, to;
+      private final GameStats[] results;
+      private final List<GameConfig> configs;
+      private final int gamesPerConfig, reactionTicks;
+      private final long maxTicks;
+      private final double aimError;
+
+      Games(int from, int to, GameStats[] results, List<GameConfig> configs, int gamesPerConfig,
+            long maxTicks, int reactionTicks, double aimError) {
+         this.from = from;
+         this.to = to;
+         this.results = results;
+         this.configs = configs;
+         this.gamesPerConfig = gamesPerConfig;
+         this.maxTicks = maxTicks;
+         this.reactionTicks = reactionTicks;
+         this.aimError = aimError;
+      }
+
+      @Override
+      protected void compute() {
+         if (to <= from) {
+            return; // no games at all (an empty config list)
+         }
+         if (to - from == 1) {
+            GameConfig config = configs.get(from / gamesPerConfig).copy();
+            config.seed = from % gamesPerConfig;
+            PaddleController controller = new TrackingController(config.seed, reactionTicks, aimError);
+            results[from] = play(config, controller, maxTicks);
+            return;
+         }
+         int mid = (from + to) >>> 1;
+         invokeAll(new Games(from, mid, results, configs, gamesPerConfig, maxTicks, reactionTicks, aimError),
+                   new Games(mid, to, results, configs, gamesPerConfig, maxTicks, reactionTicks, aimError));
+      }
+   }
+
+   /*
+    * Command Line Methods
+    */
+   // "a", "a,b,c" or "from:to:step"
+   private static List<Double> parseValues(String spec) {
+      List<Double> values = new ArrayList<>();
+      if (spec.contains(":")) {
+         String[] range = spec.split(":");
+         double from = Double.parseDouble(range[0]), to = Double.parseDouble(range[1]);
+         double step = range.length > 2 ? Double.parseDouble(range[2]) : 1;
+         for (int i = 0; from + i * step <= to + step * 1e-9; i++) {
+            values.add(from + i * step);
+         }
+      } else {
+         for (String value : spec.split(",")) {
+            values.add(Double.parseDouble(value));
+         }
+      }
+      return values;
+   }
+
+   public static void main(String[] args) {
+      Map<String, String> options = new HashMap<>();
+      for (String arg : args) {
+         String[] pair = arg.split("=", 2);
+         options.put(pair[0], pair.length > 1 ? pair[1] : "");
+      }
+      GameConfig base = new GameConfig();
+      List<GameConfig> configs = new ArrayList<>();
+      for (double ballSpeed : parseValues(options.getOrDefault("ballSpeed", "" + base.ballSpeed))) {
+         for (double paddleSpeed : parseValues(options.getOrDefault("paddleSpeed", "" + base.paddleSpeed))) {
+            for (double xMod : parseValues(options.getOrDefault("paddleXMod", "" + base.paddleXMod))) {
+               for (double rows : parseValues(options.getOrDefault("brickRows", "" + base.brickRows))) {
+                  for (double cols : parseValues(options.getOrDefault("brickCols", "" + base.brickCols))) {
+                     for (double balls : parseValues(options.getOrDefault("balls", "1"))) {
+                        GameConfig config = base.copy();
+                        config.ballSpeed = ballSpeed;
+                        config.paddleSpeed = paddleSpeed;
+                        config.paddleXMod = xMod;
+                        config.brickRows = (int) rows;
+                        config.brickCols = (int) cols;
+                        config.ballCount = (int) balls;
+                        configs.add(config);
+                     }
+                  }
+               }
+            }
+         }
+      }
+      int games = Integer.parseInt(options.getOrDefault("games", "16"));
+      if (games < 1) {
+         throw new IllegalArgumentException("games must be at least 1, not " + games);
+      }
+      long maxTicks = (long) (Double.parseDouble(options.getOrDefault("minutes", "10")) * 60 * base.tickRate);
+      int threads = Integer.parseInt(options.getOrDefault("threads",
+                                     "" + Runtime.getRuntime().availableProcessors()));
+      int reaction = Integer.parseInt(options.getOrDefault("reaction", "4"));
+      double aimError = Double.parseDouble(options.getOrDefault("aimError", "30"));
+
+      long start = System.nanoTime();
+      GameStats[] stats = run(configs, games, maxTicks, threads, reaction, aimError);
+      double seconds = (System.nanoTime() - start) / 1e9;
+
+      System.out.println("ballSpeed,paddleSpeed,paddleXMod,brickRows,brickCols,balls,games,clears," +
+                         "meanClearSeconds,meanLivesLost,speedP50,speedP90,speedMax");
+      for (int c = 0; c < configs.size(); c++) {
+         GameConfig config = configs.get(c);
+         GameStats s = stats[c];
+         System.out.printf("%s,%s,%s,%d,%d,%d,%d,%d,%.2f,%.2f,%.1f,%.1f,%.1f%n",
+                           config.ballSpeed, config.paddleSpeed, config.paddleXMod,
+                           config.brickRows, config.brickCols, config.ballCount,
+                           s.getGames(), s.getClears(), s.getMeanClearTicks() / config.tickRate,
+                           s.getMeanLivesLost(), s.getSpeedPercentile(0.5),
+                           s.getSpeedPercentile(0.9), s.getSpeedPercentile(1));
+      }
+      long totalTicks = (long) configs.size() * games * maxTicks;
+      System.err.printf("%d games on %d threads in %.1f s: %.0f games/s, %.2e ticks/s%n",
+                        configs.size() * games, threads, seconds,
+                        configs.size() * games / seconds, totalTicks / seconds);
+   }
+}
@@ -0,0 +1,168 @@
+/*
+ * This is part of a simple breakout clone.
+ * BrickField.java is the Model for all bricks of a level, kept in flat arrays
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+public class BrickField {
+   private double[] left, top, width, height;
+   private int[] color;
+   private int[] health; // brick "health" : number of hits needed to break
+   private final BitSet alive = new BitSet(); // one bit per brick still standing
+   private int count; // bricks in the level, alive or not
+   private int liveCount; // bricks still standing
+
+   public BrickField(int capacity) {
+      allocate(Math.max(capacity, 1));
+   }
+
+   private void allocate(int capacity) {
+      left = new double[capacity];
+      top = new double[capacity];
+      width = new double[capacity];
+      height = new double[capacity];
+      color = new int[capacity];
+      health = new int[capacity];
+   }
+
+   private void grow() {
+      int capacity = left.length * 2;
+      left = Arrays.copyOf(left, capacity);
+      top = Arrays.copyOf(top, capacity);
+      width = Arrays.copyOf(width, capacity);
+      height = Arrays.copyOf(height, capacity);
+      color = Arrays.copyOf(color, capacity);
+      health = Arrays.copyOf(health, capacity);
+   }
+
+   public void clear() {
+      alive.clear();
+      count = 0;
+      liveCount = 0;
+   }
+
+   public int add(double x, double y, double w, double h, int colorIndex, int hp) {
+      if (count == left.length) {
+         grow();
+      }
+      int i = count++;
+      left[i] = x;
+      top[i] = y;
+      width[i] = w;
+      height[i] = h;
+      color[i] = colorIndex;
+      health[i] = hp;
+      alive.set(i);
+      liveCount++;
+      return i;
+   }
+
+   // Returns true if the brick was alive and is now destroyed
+   public boolean kill(int i) {
+      if (!alive.get(i)) {
+         return false;
+      }
+      alive.clear(i);
+      liveCount--;
+      return true;
+   }
+
+   // Which bricks stand (8 to a byte) and their health, for World.writeState;
+   // the layout itself is the same every time a level is laid out
+   void writeState(ByteBuffer out) {
+      out.putInt(count);
+      for (int i = 0; i < count; i += 8) {
+         int bits = 0;
+         for (int j = 0; j < 8 && i + j < count; j++) {
+            bits |= alive.get(i + j) ? 1 << j : 0;
+         }
+         out.put((byte) bits);
+      }
+      for (int i = 0; i < count; i++) {
+         out.putInt(health[i]);
+      }
+   }
+
+   void readState(ByteBuffer in) {
+      if (in.getInt() != count) {
+         throw new IllegalStateException("Snapshot is of a different brick layout");
+      }
+      alive.clear();
+      for (int i = 0; i < count; i += 8) {
+         int bits = in.get();
+         for (int j = 0; j < 8 && i + j < count; j++) {
+            if ((bits & 1 << j) != 0) {
+               alive.set(i + j);
+            }
+         }
+      }
+      liveCount = alive.cardinality();
+      for (int i = 0; i < count; i++) {
+         health[i] = in.getInt();
+      }
+   }
+
+   int maxStateBytes() {
+      return 4 + (count + 7) / 8 + count * 4;
+   }
+
+   // Getters for brick sides (bounds)
+   public double getXLeft(int i) {
+      return left[i];
+   }
+
+   public double getXRight(int i) {
+      return left[i] + width[i];
+   }
+
+   public double getYUpper(int i) {
+      return top[i];
+   }
+
+   public double getYLower(int i) {
+      return top[i] + height[i];
+   }
+
+   public double getWidth(int i) {
+      return width[i];
+   }
+
+   public double getHeight(int i) {
+      return height[i];
+   }
+
+   public int getColor(int i) {
+      return color[i];
+   }
+
+   // Getters and Setters for brick health
+   public int getHealth(int i) {
+      return health[i];
+   }
+
+   public void setHealth(int i, int newHealth) {
+      health[i] = newHealth;
+   }
+
+   public boolean isAlive(int i) {
+      return alive.get(i);
+   }
+
+   // First live brick at or after index from, or -1
+   public int nextAlive(int from) {
+      return alive.nextSetBit(from);
+   }
+
+   public int size() {
+      return count;
+   }
+
+   public int liveCount() {
+      return liveCount;
+   }
+}
@@ -0,0 +1,153 @@
+/*
+ * This is part of a simple breakout clone.
+ * BrickGrid.java is a uniform grid over the brick layout, used as the
+ * collision broadphase so a tick only looks at bricks near the ball.
+ * Cells are sized to the brick gaps, so in the default layout each cell
+ * holds one brick. Cell contents are packed into one array (one segment
+ * per cell) and destroyed bricks are swap-removed from their segments.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.util.Arrays;
+
+public class BrickGrid {
+   private final double cellWidth, cellHeight;
+   private double originX, originY;
+   private int cols, rows;
+   private int[] cellStart = new int[0]; // first slot of each cell in items
+   private int[] cellCount = new int[0]; // live bricks in each cell
+   private int[] items = new int[0]; // brick indices, grouped by cell
+   private int[] stamp = new int[0]; // last query that reported each brick
+   private int queryId = 0;
+   private int[] results = new int[16];
+
+   public BrickGrid(double cellWidth, double cellHeight) {
+      this.cellWidth = cellWidth;
+      this.cellHeight = cellHeight;
+   }
+
+   // Rebuild the grid for a freshly created level
+   public void rebuild(BrickField bricks) {
+      int n = bricks.size();
+      originX = Double.MAX_VALUE;
+      originY = Double.MAX_VALUE;
+      double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+      for (int i = 0; i < n; i++) {
+         originX = Math.min(originX, bricks.getXLeft(i));
+         originY = Math.min(originY, bricks.getYUpper(i));
+         maxX = Math.max(maxX, bricks.getXRight(i));
+         maxY = Math.max(maxY, bricks.getYLower(i));
+      }
+      if (n == 0) {
+         originX = originY = maxX = maxY = 0;
+      }
+      cols = cellX(maxX) + 1;
+      rows = cellY(maxY) + 1;
+      int cells = cols * rows;
+      if (cellStart.length < cells) {
+         cellStart = new int[cells];
+         cellCount = new int[cells];
+      }
+      Arrays.fill(cellCount, 0, cells, 0);
+      if (stamp.length < n) {
+         stamp = new int[n];
+      }
+      // count, then prefix sum, then fill
+      int total = 0;
+      for (int pass = 0; pass < 2; pass++) {
+         for (int i = 0; i < n; i++) {
+            if (!bricks.isAlive(i)) {
+               continue;
+            }
+            int x0 = cellX(bricks.getXLeft(i)), x1 = cellX(bricks.getXRight(i));
+            int y0 = cellY(bricks.getYUpper(i)), y1 = cellY(bricks.getYLower(i));
+            for (int cy = y0; cy <= y1; cy++) {
+               for (int cx = x0; cx <= x1; cx++) {
+                  int cell = cy * cols + cx;
+                  if (pass == 0) {
+                     cellCount[cell]++;
+                     total++;
+                  } else {
+                     items[cellStart[cell] + cellCount[cell]++] = i;
+                  }
+               }
+            }
+         }
+         if (pass == 0) {
+            if (items.length < total) {
+               items = new int[total];
+            }
+            int start = 0;
+            for (int cell = 0; cell < cells; cell++) {
+               cellStart[cell] = start;
+               start += cellCount[cell];
+               cellCount[cell] = 0;
+            }
+         }
+      }
+   }
+
+   // Drop a destroyed brick from every cell it covers
+   public void remove(BrickField bricks, int brick) {
+      int x0 = cellX(bricks.getXLeft(brick)), x1 = cellX(bricks.getXRight(brick));
+      int y0 = cellY(bricks.getYUpper(brick)), y1 = cellY(bricks.getYLower(brick));
+      for (int cy = y0; cy <= y1; cy++) {
+         for (int cx = x0; cx <= x1; cx++) {
+            int cell = cy * cols + cx;
+            int start = cellStart[cell];
+            int last = start + cellCount[cell] - 1;
+            for (int k = start; k <= last; k++) {
+               if (items[k] == brick) {
+                  items[k] = items[last];
+                  cellCount[cell]--;
+                  break;
+               }
+            }
+         }
+      }
+   }
+
+   // Collect the live bricks in every cell touched by the given box.
+   // Returns the number of candidates, which are read back from results().
+   public int query(double minX, double minY, double maxX, double maxY) {
+      int x0 = Math.max(cellX(minX), 0), x1 = Math.min(cellX(maxX), cols - 1);
+      int y0 = Math.max(cellY(minY), 0), y1 = Math.min(cellY(maxY), rows - 1);
+      int found = 0;
+      if (++queryId == 0) {
+         Arrays.fill(stamp, 0);
+         queryId = 1;
+      }
+      for (int cy = y0; cy <= y1; cy++) {
+         for (int cx = x0; cx <= x1; cx++) {
+            int cell = cy * cols + cx;
+            int end = cellStart[cell] + cellCount[cell];
+            for (int k = cellStart[cell]; k < end; k++) {
+               int brick = items[k];
+               if (stamp[brick] != queryId) {
+                  stamp[brick] = queryId;
+                  if (found == results.length) {
+                     results = Arrays.copyOf(results, found * 2);
+                  }
+                  results[found++] = brick;
+               }
+            }
+         }
+      }
+      // keep the same hit order as a scan over the whole brick list
+      Arrays.sort(results, 0, found);
+      return found;
+   }
+
+   public int[] results() {
+      return results;
+   }
+
+   private int cellX(double x) {
+      return (int) Math.floor((x - originX) / cellWidth);
+   }
+
+   private int cellY(double y) {
+      return (int) Math.floor((y - originY) / cellHeight);
+   }
+}
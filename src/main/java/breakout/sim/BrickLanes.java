@@ -0,0 +1,78 @@
+/*
+ * This is part of a simple breakout clone.
+ * BrickLanes.java is a batch of brick boxes gathered into contiguous arrays,
+ * one per box side, so a Narrowphase can test them many at a time.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.util.Arrays;
+
+public class BrickLanes {
+   double[] minX, minY, maxX, maxY;
+   int[] ids; // brick index of each box
+   int count;
+
+   public BrickLanes(int capacity) {
+      capacity = Math.max(capacity, 1);
+      minX = new double[capacity];
+      minY = new double[capacity];
+      maxX = new double[capacity];
+      maxY = new double[capacity];
+      ids = new int[capacity];
+   }
+
+   public void clear() {
+      count = 0;
+   }
+
+   public void add(BrickField bricks, int brick) {
+      if (count == ids.length) {
+         int capacity = count * 2;
+         minX = Arrays.copyOf(minX, capacity);
+         minY = Arrays.copyOf(minY, capacity);
+         maxX = Arrays.copyOf(maxX, capacity);
+         maxY = Arrays.copyOf(maxY, capacity);
+         ids = Arrays.copyOf(ids, capacity);
+      }
+      minX[count] = bricks.getXLeft(brick);
+      minY[count] = bricks.getYUpper(brick);
+      maxX[count] = bricks.getXRight(brick);
+      maxY[count] = bricks.getYLower(brick);
+      ids[count++] = brick;
+   }
+
+   // Copy box from onto box to (to <= from), when compacting survivors
+   void move(int from, int to) {
+      minX[to] = minX[from];
+      minY[to] = minY[from];
+      maxX[to] = maxX[from];
+      maxY[to] = maxY[from];
+      ids[to] = ids[from];
+   }
+
+   // Getters
+   public int size() {
+      return count;
+   }
+
+   public int getId(int k) {
+      return ids[k];
+   }
+
+   public double getMinX(int k) {
+      return minX[k];
+   }
+
+   public double getMinY(int k) {
+      return minY[k];
+   }
+
+   public double getMaxX(int k) {
+      return maxX[k];
+   }
+
+   public double getMaxY(int k) {
+      return maxY[k];
+   }
+}
@@ -0,0 +1,100 @@
+/*
+ * This is part of a simple breakout clone.
+ * EventQueue.java holds the game events raised during one World.step, in order,
+ * as (type, argument) pairs in preallocated int arrays. The World clears it at
+ * the start of each step; views read it once the step is done, through a cursor.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.util.Arrays;
+
+public class EventQueue {
+   // Event types; the argument is noted where there is one
+   public static final int ROUND_STARTED   = 0;
+   public static final int EXTRA_LIFE      = 1;
+   public static final int BRICK_HIT       = 2; // brick index
+   public static final int BRICK_DESTROYED = 3; // brick index
+   public static final int PADDLE_HIT      = 4;
+   public static final int BALL_LOST       = 5;
+   public static final int GAME_OVER       = 6; // final score
+   public static final int LEVEL_CLEARED   = 7;
+   private int[] types, args;
+   private int count = 0;
+   private int read = -1; // cursor of next()
+
+   public EventQueue(int capacity) {
+      types = new int[Math.max(capacity, 1)];
+      args = new int[types.length];
+   }
+
+   void clear() {
+      count = 0;
+      read = -1;
+   }
+
+   // Only grows while a step raises more events than ever before
+   void push(int type, int arg) {
+      if (count == types.length) {
+         types = Arrays.copyOf(types, count * 2);
+         args = Arrays.copyOf(args, count * 2);
+      }
+      types[count] = type;
+      args[count++] = arg;
+   }
+
+   // Deliver the events from the given one on to a listener, without moving the cursor
+   void dispatch(WorldListener listener, int from) {
+      for (int k = from; k < count; k++) {
+         switch (types[k]) {
+            case ROUND_STARTED:
+               listener.roundStarted();
+               break;
+            case EXTRA_LIFE:
+               listener.extraLife();
+               break;
+            case BRICK_HIT:
+               listener.brickHit(args[k]);
+               break;
+            case BRICK_DESTROYED:
+               listener.brickDestroyed(args[k]);
+               break;
+            case PADDLE_HIT:
+               listener.paddleHit();
+               break;
+            case BALL_LOST:
+               listener.ballLost();
+               break;
+            case GAME_OVER:
+               listener.gameOver(args[k]);
+               break;
+            case LEVEL_CLEARED:
+               listener.levelCleared();
+               break;
+            default:
+         }
+      }
+   }
+
+   // Move the cursor to the next unread event; false when none is left
+   public boolean next() {
+      if (read + 1 >= count) {
+         return false;
+      }
+      read++;
+      return true;
+   }
+
+   // Getters of the event at the cursor
+   public int type() {
+      return types[read];
+   }
+
+   public int arg() {
+      return args[read];
+   }
+
+   public int size() {
+      return count;
+   }
+}
@@ -0,0 +1,85 @@
+/*
+ * This is part of a simple breakout clone.
+ * FrameExchange.java is a lock-free triple buffer of StateFrames between one
+ * writer (the simulation thread) and one reader (the FX thread). The writer
+ * fills its back frame and swaps it with the middle one; the reader swaps its
+ * front frame with the middle one when a newer frame is there. Neither ever
+ * waits for the other, and a frame the reader was too late for is dropped.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FrameExchange {
+   private static final int INDEX = 3; // low bits of middle: frame index
+   private static final int FRESH = 4; // published and not taken yet
+   private final StateFrame[] frames = new StateFrame[3];
+   private final AtomicInteger middle = new AtomicInteger(1);
+   private int back = 0; // writer's frame
+   private int front = 2; // reader's frame
+   private boolean hasFrame = false; // reader side: a frame was taken
+   // each count is written by one thread only
+   private volatile long published, dropped, reused;
+
+   public FrameExchange(World world) {
+      for (int i = 0; i < frames.length; i++) {
+         frames[i] = new StateFrame(world);
+      }
+   }
+
+   /*
+    * Writer Methods
+    */
+   public StateFrame back() {
+      return frames[back];
+   }
+
+   // Sequence number the next published frame gets
+   public long nextSequence() {
+      return published + 1;
+   }
+
+   // Hand the back frame to the reader
+   public void publish() {
+      frames[back].sequence = published + 1;
+      int old = middle.getAndSet(back | FRESH);
+      back = old & INDEX;
+      published++;
+      if ((old & FRESH) != 0) {
+         dropped++; // superseded before the reader saw it
+      }
+   }
+
+   /*
+    * Reader Methods
+    */
+   // The newest frame, or null if none was published since the last call
+   // (the reader draws its last frame again)
+   public StateFrame take() {
+      if ((middle.get() & FRESH) == 0) {
+         if (hasFrame) {
+            reused++;
+         }
+         return null;
+      }
+      front = middle.getAndSet(front) & INDEX;
+      hasFrame = true;
+      return frames[front];
+   }
+
+   // Getters
+   public long getPublished() {
+      return published;
+   }
+
+   // Frames published but never taken
+   public long getDropped() {
+      return dropped;
+   }
+
+   // Reader calls that found nothing new
+   public long getReused() {
+      return reused;
+   }
+}
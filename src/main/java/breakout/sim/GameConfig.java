@@ -0,0 +1,114 @@
+/*
+ * This is part of a simple breakout clone.
+ * GameConfig.java holds the tunable rules and dimensions of the simulation
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class GameConfig {
+   public double width         = 600; // width of playfield
+   public double height        = 800; // height of playfield
+   public double paddleWidth   = 100; // paddle width
+   public double paddleHeight  = 15; // paddle height
+   public double paddleSpeed   = 8; // default paddle speed
+   public double paddleXMod    = 0.8; // ball x velocity modifier on paddle collision
+   public double ballRadius    = 10; // default ball radius
+   public double ballSpeed     = 6; // default ball speed
+   public int ballCount        = 1; // balls served each round (multi-ball mode when > 1)
+   public double ballSpread    = Math.toRadians(60); // serve fan half-angle for multi-ball
+   public double brickWidth    = 70; // brick width
+   public double brickHeight   = 20; // brick height
+   public double brickXOffset  = 10; // x offset of bricks
+   public double brickYOffset  = 70; // y offset of bricks
+   public double brickXGap     = 85; // x gap between brick left wall
+   public double brickYGap     = 30; // y gap between brick top wall
+   public int brickRows        = 7; // rows of bricks in the default layout
+   public int brickCols        = 7; // columns of bricks in the default layout
+   public int brickColors      = 7; // number of brick colors (one per row)
+   public int scoreIncrement   = 100; // default score increment
+   public int defaultLives     = 3; // default lives at start
+   public int tickRate         = 60; // simulation steps per second (speeds are per 60Hz step)
+   public long seed            = 0; // seed for randomized rules, kept in replays
+
+   public GameConfig() {
+   }
+
+   public GameConfig(double width, double height) {
+      this.width = width;
+      this.height = height;
+   }
+
+   public GameConfig copy() {
+      GameConfig c = new GameConfig(width, height);
+      c.paddleWidth = paddleWidth;
+      c.paddleHeight = paddleHeight;
+      c.paddleSpeed = paddleSpeed;
+      c.paddleXMod = paddleXMod;
+      c.ballRadius = ballRadius;
+      c.ballSpeed = ballSpeed;
+      c.ballCount = ballCount;
+      c.ballSpread = ballSpread;
+      c.brickWidth = brickWidth;
+      c.brickHeight = brickHeight;
+      c.brickXOffset = brickXOffset;
+      c.brickYOffset = brickYOffset;
+      c.brickXGap = brickXGap;
+      c.brickYGap = brickYGap;
+      c.brickRows = brickRows;
+      c.brickCols = brickCols;
+      c.brickColors = brickColors;
+      c.scoreIncrement = scoreIncrement;
+      c.defaultLives = defaultLives;
+      c.tickRate = tickRate;
+      c.seed = seed;
+      return c;
+   }
+
+   // Binary form, used by replay files
+   public void write(DataOutput out) throws IOException {
+      double[] sizes = { width, height, paddleWidth, paddleHeight, paddleSpeed, paddleXMod,
+                         ballRadius, ballSpeed, ballSpread, brickWidth, brickHeight,
+                         brickXOffset, brickYOffset, brickXGap, brickYGap };
+      for (double value : sizes) {
+         out.writeDouble(value);
+      }
+      int[] counts = { ballCount, brickRows, brickCols, brickColors, scoreIncrement,
+                       defaultLives, tickRate };
+      for (int value : counts) {
+         out.writeInt(value);
+      }
+      out.writeLong(seed);
+   }
+
+   public static GameConfig read(DataInput in) throws IOException {
+      GameConfig c = new GameConfig();
+      c.width = in.readDouble();
+      c.height = in.readDouble();
+      c.paddleWidth = in.readDouble();
+      c.paddleHeight = in.readDouble();
+      c.paddleSpeed = in.readDouble();
+      c.paddleXMod = in.readDouble();
+      c.ballRadius = in.readDouble();
+      c.ballSpeed = in.readDouble();
+      c.ballSpread = in.readDouble();
+      c.brickWidth = in.readDouble();
+      c.brickHeight = in.readDouble();
+      c.brickXOffset = in.readDouble();
+      c.brickYOffset = in.readDouble();
+      c.brickXGap = in.readDouble();
+      c.brickYGap = in.readDouble();
+      c.ballCount = in.readInt();
+      c.brickRows = in.readInt();
+      c.brickCols = in.readInt();
+      c.brickColors = in.readInt();
+      c.scoreIncrement = in.readInt();
+      c.defaultLives = in.readInt();
+      c.tickRate = in.readInt();
+      c.seed = in.readLong();
+      return c;
+   }
+}
@@ -0,0 +1,80 @@
+/*
+ * This is part of a simple breakout clone.
+ * GameStats.java accumulates the outcome of one or more headless games:
+ * level clear times, lives lost and a histogram of ball speeds.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+public class GameStats {
+   public static final double SPEED_BIN = 0.5; // histogram bin width, pixels per 60Hz step
+   private static final int SPEED_BINS = 64;
+   private long games, clears, clearTicks, livesLost, ticks;
+   private final long[] speedHistogram = new long[SPEED_BINS];
+
+   void addGame(long gameTicks) {
+      games++;
+      ticks += gameTicks;
+   }
+
+   void addClear(long ticksToClear) {
+      clears++;
+      clearTicks += ticksToClear;
+   }
+
+   void addLifeLost() {
+      livesLost++;
+   }
+
+   void addSpeed(double speed) {
+      speedHistogram[Math.min((int) (speed / SPEED_BIN), SPEED_BINS - 1)]++;
+   }
+
+   public void merge(GameStats other) {
+      games += other.games;
+      clears += other.clears;
+      clearTicks += other.clearTicks;
+      livesLost += other.livesLost;
+      ticks += other.ticks;
+      for (int i = 0; i < SPEED_BINS; i++) {
+         speedHistogram[i] += other.speedHistogram[i];
+      }
+   }
+
+   public long getGames() {
+      return games;
+   }
+
+   public long getTicks() {
+      return ticks;
+   }
+
+   public long getClears() {
+      return clears;
+   }
+
+   // Mean steps taken to clear a level, over the levels that were cleared
+   public double getMeanClearTicks() {
+      return clears == 0 ? Double.NaN : (double) clearTicks / clears;
+   }
+
+   public double getMeanLivesLost() {
+      return games == 0 ? Double.NaN : (double) livesLost / games;
+   }
+
+   // Ball speed below which the given fraction of samples fall (bin upper edge)
+   public double getSpeedPercentile(double fraction) {
+      long total = 0;
+      for (long count : speedHistogram) {
+         total += count;
+      }
+      long seen = 0;
+      for (int i = 0; i < SPEED_BINS; i++) {
+         seen += speedHistogram[i];
+         if (seen > 0 && seen >= total * fraction) {
+            return (i + 1) * SPEED_BIN;
+         }
+      }
+      return Double.NaN;
+   }
+}
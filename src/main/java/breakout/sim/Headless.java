@@ -0,0 +1,59 @@
+/*
+ * This is part of a simple breakout clone.
+ * Headless.java runs the World without a display, as fast as the CPU allows.
+ * Usage: java -cp Breakout.jar breakout.sim.Headless [ticks] [balls] [replay file to write]
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.io.IOException;
+
+public class Headless {
+   private static final long DEFAULT_TICKS = 1000000;
+
+   // Keep the paddle under the lowest live ball and relaunch after every lost life
+   public static void autopilot(World world, Input input) {
+      BallSet balls = world.getBalls();
+      int lowest = 0;
+      for (int i = 0; i < balls.size(); i++) {
+         if (balls.isLive(i) && (!balls.isLive(lowest) || balls.getY(i) > balls.getY(lowest))) {
+            lowest = i;
+         }
+      }
+      double offset = balls.getX(lowest) - world.getPaddleMidX();
+      input.setPaddleDir(Math.abs(offset) < world.getConfig().paddleSpeed ? 0 : (int) Math.signum(offset));
+      if (!world.hasRoundStarted()) {
+         input.pressLaunch();
+      }
+   }
+
+   public static void main(String[] args) throws IOException {
+      long ticks = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_TICKS;
+      GameConfig config = new GameConfig();
+      config.ballCount = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+      World world = new World(config);
+      Input input = new Input();
+      InputRecorder recorder = args.length > 2 ? new InputRecorder(args[2], config) : null;
+      long ballsMoved = 0;
+      long start = System.nanoTime();
+      for (long t = 0; t < ticks; t++) {
+         autopilot(world, input);
+         ballsMoved += world.hasRoundStarted() ? world.getBalls().liveCount() : 0;
+         if (recorder != null) {
+            recorder.record(input);
+         }
+         world.step(input);
+         input.clearPresses();
+      }
+      if (recorder != null) {
+         recorder.finish(world);
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.printf("%d ticks in %.3f s (%.0f ticks/s, %.0fx real time at 60Hz)%n",
+                        ticks, seconds, ticks / seconds, ticks / seconds / 60);
+      System.out.printf("level %d, score %d, lives %d%n",
+                        world.getLevel(), world.getScore(), world.getLives());
+      System.out.printf("%.0f ns/tick, %.1f ns per ball moved (%d balls served)%n",
+                        seconds * 1e9 / ticks, seconds * 1e9 / Math.max(ballsMoved, 1), config.ballCount);
+   }
+}
@@ -0,0 +1,59 @@
+/*
+ * This is part of a simple breakout clone.
+ * Input.java is the player input applied to one simulation step
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+public class Input {
+   // Bit layout used when an Input is stored or sent as a single byte
+   public static final int RIGHT_BIT      = 1;
+   public static final int LEFT_BIT       = 1 << 1;
+   public static final int LAUNCH_BIT     = 1 << 2;
+   public static final int EXTRA_LIFE_BIT = 1 << 3;
+   private int paddleDir; // -1 left, 0 still, 1 right
+   private boolean launch; // space pressed this step
+   private boolean extraLife; // enter pressed this step
+
+   // Getters and Setters
+   public int getPaddleDir() {
+      return paddleDir;
+   }
+
+   public void setPaddleDir(int dir) {
+      paddleDir = Integer.signum(dir);
+   }
+
+   public boolean isLaunch() {
+      return launch;
+   }
+
+   public void pressLaunch() {
+      launch = true;
+   }
+
+   public boolean isExtraLife() {
+      return extraLife;
+   }
+
+   public void pressExtraLife() {
+      extraLife = true;
+   }
+
+   public int toBits() {
+      return (paddleDir > 0 ? RIGHT_BIT : 0) | (paddleDir < 0 ? LEFT_BIT : 0) |
+             (launch ? LAUNCH_BIT : 0) | (extraLife ? EXTRA_LIFE_BIT : 0);
+   }
+
+   public void setBits(int bits) {
+      paddleDir = ((bits & RIGHT_BIT) != 0 ? 1 : 0) - ((bits & LEFT_BIT) != 0 ? 1 : 0);
+      launch = (bits & LAUNCH_BIT) != 0;
+      extraLife = (bits & EXTRA_LIFE_BIT) != 0;
+   }
+
+   // One-shot presses only apply to the step they were made before
+   public void clearPresses() {
+      launch = false;
+      extraLife = false;
+   }
+}
@@ -0,0 +1,88 @@
+/*
+ * This is part of a simple breakout clone.
+ * InputRecorder.java writes the input of every simulation step to a replay file.
+ *
+ * File layout (big endian):
+ *   header  : magic "BRKR", format version (short), GameConfig (see GameConfig.write),
+ *             level file length (int, 0 for the default layout), level file bytes (see LevelFile)
+ *   inputs  : runs of (varint length, input byte); a run of length 0 ends them
+ *   trailer : ticks (long), score, level, lives (int), World.checksum (long)
+ * Input bytes use the Input bit layout. Held keys repeat for many steps,
+ * so run-length encoding keeps an hour of play to a few kilobytes.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+public class InputRecorder implements Closeable {
+   static final int MAGIC = 0x42524B52; // "BRKR"
+   static final short VERSION = 2; // 1 had no level
+   private final DataOutputStream out;
+   private int runBits = -1; // input byte of the current run
+   private long runLength = 0;
+   private long ticks = 0;
+
+   public InputRecorder(String path, GameConfig config) throws IOException {
+      this(path, config, null);
+   }
+
+   // level is the layout the World was built with, or null for the default one
+   public InputRecorder(String path, GameConfig config, LevelFile level) throws IOException {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+      out.writeInt(MAGIC);
+      out.writeShort(VERSION);
+      config.write(out);
+      byte[] levelBytes = level == null ? new byte[0] : level.toByteArray();
+      out.writeInt(levelBytes.length);
+      out.write(levelBytes);
+   }
+
+   // Call once per step with the input passed to World.step
+   public void record(Input input) throws IOException {
+      int bits = input.toBits();
+      if (bits != runBits) {
+         flushRun();
+         runBits = bits;
+      }
+      runLength++;
+      ticks++;
+   }
+
+   // Close the input stream and store the end state for the replayer to check
+   public void finish(World world) throws IOException {
+      flushRun();
+      writeVarLong(0);
+      out.writeLong(ticks);
+      out.writeInt(world.getScore());
+      out.writeInt(world.getLevel());
+      out.writeInt(world.getLives());
+      out.writeLong(world.checksum());
+      out.close();
+   }
+
+   @Override
+   public void close() throws IOException {
+      out.close();
+   }
+
+   private void flushRun() throws IOException {
+      if (runLength > 0) {
+         writeVarLong(runLength);
+         out.writeByte(runBits);
+         runLength = 0;
+      }
+   }
+
+   private void writeVarLong(long value) throws IOException {
+      while ((value & ~0x7FL) != 0) {
+         out.writeByte((int) (value & 0x7F) | 0x80);
+         value >>>= 7;
+      }
+      out.writeByte((int) value);
+   }
+}
@@ -0,0 +1,71 @@
+/*
+ * This is part of a simple breakout clone.
+ * InputState.java is the live state of the player's buttons as a bitmask
+ * (the Input bit layout). Key handlers only flip bits; the game samples the
+ * state into an Input once at the start of every step.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+public class InputState {
+   private int held; // RIGHT_BIT and LEFT_BIT of buttons down now
+   private int lastDir; // LEFT_BIT or RIGHT_BIT, whichever went down last
+   private int presses; // LAUNCH_BIT and EXTRA_LIFE_BIT pressed since the last sample
+   private long pendingNanos = -1; // first event not yet sampled by a step
+   private long sampledNanos = -1; // first event sampled but not yet rendered
+
+   // bit is one of the Input bits; nanos is System.nanoTime() when the event arrived
+   public void press(int bit, long nanos) {
+      if ((bit & (Input.LEFT_BIT | Input.RIGHT_BIT)) != 0) {
+         if ((held & bit) != 0) {
+            return; // key repeat
+         }
+         held |= bit;
+         lastDir = bit;
+      } else {
+         presses |= bit;
+      }
+      stamp(nanos);
+   }
+
+   public void release(int bit, long nanos) {
+      if ((held & bit) == 0) {
+         return;
+      }
+      held &= ~bit;
+      stamp(nanos);
+   }
+
+   private void stamp(long nanos) {
+      if (pendingNanos < 0) {
+         pendingNanos = nanos;
+      }
+   }
+
+   // With both directions held the one pressed last wins, so rolling from one
+   // arrow to the other never stops the paddle
+   public void sample(Input input) {
+      int dir = held == (Input.LEFT_BIT | Input.RIGHT_BIT) ? lastDir : held;
+      input.setBits(dir | presses);
+      presses = 0;
+      if (sampledNanos < 0) {
+         sampledNanos = pendingNanos;
+      }
+      pendingNanos = -1;
+   }
+
+   // Time from the first event that reached a step to now (the end of the
+   // frame that shows it), or -1 if no event reached a step since the last call
+   public long takeLatency(long now) {
+      long sampled = takeSampled();
+      return sampled < 0 ? -1 : now - sampled;
+   }
+
+   // When the first event that reached a step since the last call arrived, or -1;
+   // for handing the latency over to the thread that draws the step (see StateFrame)
+   public long takeSampled() {
+      long sampled = sampledNanos;
+      sampledNanos = -1;
+      return sampled;
+   }
+}
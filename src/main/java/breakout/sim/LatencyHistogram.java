@@ -0,0 +1,80 @@
+/*
+ * This is part of a simple breakout clone.
+ * LatencyHistogram.java counts durations in fixed log-linear buckets
+ * (8 buckets per power of two, so about 12% resolution). Recording is a
+ * few arithmetic operations on a preallocated array and never allocates.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.util.Arrays;
+
+public class LatencyHistogram {
+   private static final int SUB_BITS = 3; // 2^3 sub-buckets per power of two
+   private static final int SUB_COUNT = 1 << SUB_BITS;
+   private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+   private final long[] counts = new long[BUCKETS];
+   private long total, max, sum;
+
+   public void record(long nanos) {
+      long value = Math.max(nanos, 0);
+      counts[bucket(value)]++;
+      total++;
+      sum += value;
+      max = Math.max(max, value);
+   }
+
+   private static int bucket(long value) {
+      if (value < SUB_COUNT) {
+         return (int) value;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+      return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+   }
+
+   // Largest value that falls in a bucket
+   private static long bucketTop(int bucket) {
+      if (bucket < SUB_COUNT) {
+         return bucket;
+      }
+      int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+      long sub = bucket % SUB_COUNT;
+      return ((SUB_COUNT + sub + 1) << (exponent - SUB_BITS)) - 1;
+   }
+
+   // Value below which the given fraction of samples fall, in nanoseconds
+   public long percentile(double fraction) {
+      if (total == 0) {
+         return 0;
+      }
+      long rank = (long) Math.ceil(total * fraction);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+         seen += counts[i];
+         if (seen >= rank && seen > 0) {
+            return Math.min(bucketTop(i), max);
+         }
+      }
+      return max;
+   }
+
+   public long getMax() {
+      return max;
+   }
+
+   public long getCount() {
+      return total;
+   }
+
+   public double getMean() {
+      return total == 0 ? 0 : (double) sum / total;
+   }
+
+   public void reset() {
+      Arrays.fill(counts, 0);
+      total = 0;
+      max = 0;
+      sum = 0;
+   }
+}
@@ -0,0 +1,177 @@
+/*
+ * This is part of a simple breakout clone.
+ * LevelFile.java reads and writes brick layouts in a versioned binary format.
+ *
+ * File layout (big endian):
+ *   header  : magic "BRKL", format version (short), reserved (short),
+ *             brick count (int), level width (float), level height (float)
+ *   bricks  : count records of x, y, width, height (float), color index,
+ *             health (short), sorted by y
+ * The file is memory-mapped and checked when opened; each round copies
+ * every brick the ball can reach (inside the world, above the floor) into a
+ * BrickField, in y order.
+ * Usage: java -cp Breakout.jar breakout.sim.LevelFile out.brkl rows cols [health]
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class LevelFile {
+   static final int MAGIC = 0x42524B4C; // "BRKL"
+   static final short VERSION = 1;
+   private static final int HEADER_SIZE = 20;
+   private static final int RECORD_SIZE = 20;
+   private final ByteBuffer data;
+   private final int count;
+   private final double width, height;
+
+   public LevelFile(Path path) throws IOException {
+      this(map(path), path.toString());
+   }
+
+   // A level held in memory, such as one stored in a replay file; name is used in errors
+   public LevelFile(ByteBuffer data, String name) throws IOException {
+      this.data = data;
+      if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+         throw new IOException(name + " is not a level file");
+      }
+      short version = data.getShort(4);
+      if (version != VERSION) {
+         throw new IOException(name + " has unsupported level version " + version);
+      }
+      count = data.getInt(8);
+      width = data.getFloat(12);
+      height = data.getFloat(16);
+      if (count < 0 || data.limit() < HEADER_SIZE + (long) count * RECORD_SIZE) {
+         throw new IOException(name + " is truncated");
+      }
+      if (!isSize(width) || !isSize(height)) {
+         throw new IOException(name + " has a bad level size " + width + " x " + height);
+      }
+      // A brick that can never be destroyed makes the level unclearable, the
+      // views index their palettes with the color, and the brick grid spans
+      // the bricks, so one far outside the level would make it huge
+      float lastY = 0;
+      for (int i = 0; i < count; i++) {
+         int at = HEADER_SIZE + i * RECORD_SIZE;
+         float x = data.getFloat(at), y = data.getFloat(at + 4);
+         float w = data.getFloat(at + 8), h = data.getFloat(at + 12);
+         if (!Float.isFinite(x) || !Float.isFinite(y) || !isSize(w) || !isSize(h)) {
+            throw new IOException(name + " brick " + i + " has a bad position or size");
+         }
+         if (x < 0 || y < 0 || x + (double) w > width || y + (double) h > height) {
+            throw new IOException(name + " brick " + i + " lies outside the " + width + " x " + height + " level");
+         }
+         if (y < lastY) {
+            throw new IOException(name + " brick " + i + " is not sorted by y");
+         }
+         lastY = y;
+         if (data.getShort(at + 16) < 0) {
+            throw new IOException(name + " brick " + i + " has negative color " + data.getShort(at + 16));
+         }
+         if (data.getShort(at + 18) < 1) {
+            throw new IOException(name + " brick " + i + " has health " + data.getShort(at + 18));
+         }
+      }
+   }
+
+   private static boolean isSize(double size) {
+      return size > 0 && size < Double.POSITIVE_INFINITY;
+   }
+
+   private static ByteBuffer map(Path path) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+   }
+
+   // Append every brick that lies within maxX and whose top edge is above
+   // maxY; the others could never be hit. Returns the number of bricks added.
+   public int loadInto(BrickField bricks, double maxX, double maxY) {
+      int added = 0;
+      for (int i = 0; i < count; i++) {
+         int at = HEADER_SIZE + i * RECORD_SIZE;
+         float x = data.getFloat(at), y = data.getFloat(at + 4), w = data.getFloat(at + 8);
+         if (x + (double) w > maxX || y > maxY) {
+            continue;
+         }
+         bricks.add(x, y, w, data.getFloat(at + 12), data.getShort(at + 16), data.getShort(at + 18));
+         added++;
+      }
+      return added;
+   }
+
+   public int size() {
+      return count;
+   }
+
+   // The whole file, as read; a replay stores it so it can lay out the same bricks
+   public byte[] toByteArray() {
+      byte[] bytes = new byte[HEADER_SIZE + count * RECORD_SIZE];
+      ByteBuffer view = data.duplicate();
+      view.clear();
+      view.get(bytes);
+      return bytes;
+   }
+
+   public double getWidth() {
+      return width;
+   }
+
+   public double getHeight() {
+      return height;
+   }
+
+   // Write every brick of a field, sorted by y as the loader expects
+   public static void write(Path path, BrickField bricks, double width, double height)
+         throws IOException {
+      Integer[] order = new Integer[bricks.size()];
+      for (int i = 0; i < order.length; i++) {
+         order[i] = i;
+      }
+      Arrays.sort(order, (a, b) -> Double.compare(bricks.getYUpper(a), bricks.getYUpper(b)));
+      ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + order.length * RECORD_SIZE);
+      out.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(order.length);
+      out.putFloat((float) width).putFloat((float) height);
+      for (int i : order) {
+         out.putFloat((float) bricks.getXLeft(i)).putFloat((float) bricks.getYUpper(i));
+         out.putFloat((float) bricks.getWidth(i)).putFloat((float) bricks.getHeight(i));
+         out.putShort((short) bricks.getColor(i)).putShort((short) bricks.getHealth(i));
+      }
+      out.flip();
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+         while (out.hasRemaining()) {
+            channel.write(out);
+         }
+      }
+   }
+
+   // Generate a rows x cols grid level using the default brick layout
+   public static void main(String[] args) throws IOException {
+      GameConfig config = new GameConfig();
+      int rows = Integer.parseInt(args[1]);
+      int cols = Integer.parseInt(args[2]);
+      int health = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+      BrickField bricks = new BrickField(rows * cols);
+      for (int row = 0; row < rows; row++) {
+         for (int col = 0; col < cols; col++) {
+            bricks.add(config.brickXOffset + col * config.brickXGap,
+                       config.brickYOffset + row * config.brickYGap,
+                       config.brickWidth, config.brickHeight,
+                       config.brickColors - 1 - row % config.brickColors, health);
+         }
+      }
+      double width = Math.max(config.width, config.brickXOffset * 2 + cols * config.brickXGap);
+      double height = config.brickYOffset + rows * config.brickYGap + config.height / 2;
+      write(Paths.get(args[0]), bricks, width, height);
+      System.out.println("wrote " + rows * cols + " bricks to " + args[0]);
+   }
+}
@@ -0,0 +1,62 @@
+/*
+ * This is part of a simple breakout clone.
+ * MessageQueue.java is a lock-free ring of (code, value) messages from one
+ * producer thread to one consumer thread: key and mouse commands to the
+ * simulation thread, and game events back to the FX thread. Both sides only
+ * publish their own index, with ordered writes; the arrays are allocated once.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MessageQueue {
+   private final int[] codes;
+   private final long[] values;
+   private final int mask;
+   private final AtomicLong head = new AtomicLong(); // next to read, written by the consumer
+   private final AtomicLong tail = new AtomicLong(); // next to write, written by the producer
+   private int code; // consumer side: the message poll() moved to
+   private long value;
+
+   // capacity is rounded up to a power of two
+   public MessageQueue(int capacity) {
+      int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+      codes = new int[size];
+      values = new long[size];
+      mask = size - 1;
+   }
+
+   // Producer: returns false, dropping the message, if the ring is full
+   public boolean offer(int code, long value) {
+      long t = tail.get();
+      if (t - head.get() == codes.length) {
+         return false;
+      }
+      codes[(int) t & mask] = code;
+      values[(int) t & mask] = value;
+      tail.lazySet(t + 1);
+      return true;
+   }
+
+   // Consumer: move to the next message; false when none is waiting
+   public boolean poll() {
+      long h = head.get();
+      if (h == tail.get()) {
+         return false;
+      }
+      code = codes[(int) h & mask];
+      value = values[(int) h & mask];
+      head.lazySet(h + 1);
+      return true;
+   }
+
+   // Getters of the message poll() moved to
+   public int code() {
+      return code;
+   }
+
+   public long value() {
+      return value;
+   }
+}
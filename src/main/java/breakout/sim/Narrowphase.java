@@ -0,0 +1,33 @@
+/*
+ * This is part of a simple breakout clone.
+ * Narrowphase.java culls a batch of broadphase candidates before the exact
+ * swept test. It runs the slab test of Swept.circleBox on every box and
+ * keeps each box that test lets through, so the bricks hit never change.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+public interface Narrowphase {
+   // Keep in lanes, in order, only the boxes a circle of radius r at (px, py)
+   // moving by (vx, vy) per unit time may touch for t in [0, tMax]; returns how many
+   int cull(double px, double py, double vx, double vy, double r, double tMax, BrickLanes lanes);
+
+   static Narrowphase scalar() {
+      return new ScalarNarrowphase();
+   }
+
+   // The Vector API version when it was built (JDK 16+) and the JVM runs with
+   // --add-modules jdk.incubator.vector, unless -Dbreakout.narrowphase=scalar;
+   // the scalar version otherwise
+   static Narrowphase best() {
+      if (!"scalar".equals(System.getProperty("breakout.narrowphase"))) {
+         try {
+            return (Narrowphase) Class.forName("breakout.sim.VectorNarrowphase")
+                                      .getDeclaredConstructor().newInstance();
+         } catch (ReflectiveOperationException | LinkageError e) {
+            // not built, or the incubator module is not in this JVM
+         }
+      }
+      return scalar();
+   }
+}
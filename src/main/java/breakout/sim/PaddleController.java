@@ -0,0 +1,10 @@
+/*
+ * This is part of a simple breakout clone.
+ * PaddleController.java is a scripted player: it fills in the Input for each step
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+public interface PaddleController {
+   void control(World world, Input input);
+}
@@ -0,0 +1,60 @@
+/*
+ * This is part of a simple breakout clone.
+ * Profiler.java keeps one LatencyHistogram per phase of the game loop and
+ * writes them out as a plain text table for comparing builds.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class Profiler {
+   public enum Phase {
+      STEP,    // one whole World.step
+      PADDLE,  // paddle movement
+      BALLS,   // ball movement and all collisions
+      RULES,   // level clear and lives bookkeeping
+      AUDIO,   // sound effects started during a frame
+      HUD,     // HUD updates during a frame
+      RENDER,  // copying the World into the scene (or canvas)
+      FRAME,   // time between two frames
+      INPUT    // key event to the end of the first frame rendered after a step sampled it
+   }
+
+   private final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+
+   public Profiler() {
+      for (int i = 0; i < histograms.length; i++) {
+         histograms[i] = new LatencyHistogram();
+      }
+   }
+
+   public void record(Phase phase, long nanos) {
+      histograms[phase.ordinal()].record(nanos);
+   }
+
+   public LatencyHistogram get(Phase phase) {
+      return histograms[phase.ordinal()];
+   }
+
+   // Report another profiler's histogram for a phase, such as one a thread
+   // that has now stopped kept on its own
+   public void replace(Phase phase, LatencyHistogram histogram) {
+      histograms[phase.ordinal()] = histogram;
+   }
+
+   public void writeReport(Path path) throws IOException {
+      try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+         out.printf("%-8s %10s %10s %10s %10s %10s%n", "phase", "count", "mean_us", "p50_us", "p99_us", "max_us");
+         for (Phase phase : Phase.values()) {
+            LatencyHistogram h = get(phase);
+            out.printf("%-8s %10d %10.1f %10.1f %10.1f %10.1f%n", phase.name().toLowerCase(),
+                       h.getCount(), h.getMean() / 1e3, h.percentile(0.5) / 1e3,
+                       h.percentile(0.99) / 1e3, h.getMax() / 1e3);
+         }
+      }
+   }
+}
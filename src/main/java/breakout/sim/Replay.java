@@ -0,0 +1,102 @@
+/*
+ * This is part of a simple breakout clone.
+ * Replay.java plays a file written by InputRecorder back through a World,
+ * without rendering and as fast as the CPU allows, then checks the end
+ * state against the one recorded.
+ * Usage: java -cp Breakout.jar breakout.sim.Replay file...
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class Replay {
+   private final World world;
+   private final long ticks;
+   private final int expectedScore, expectedLevel, expectedLives;
+   private final long expectedChecksum;
+
+   // Reads the whole file and replays it
+   public Replay(String path) throws IOException {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+         if (in.readInt() != InputRecorder.MAGIC) {
+            throw new IOException(path + " is not a replay file");
+         }
+         short version = in.readShort();
+         if (version < 1 || version > InputRecorder.VERSION) {
+            throw new IOException(path + " has unsupported replay version " + version);
+         }
+         GameConfig config = GameConfig.read(in);
+         LevelFile level = null;
+         int levelLength = version >= 2 ? in.readInt() : 0;
+         if (levelLength > 0) {
+            byte[] levelBytes = new byte[levelLength];
+            in.readFully(levelBytes);
+            level = new LevelFile(ByteBuffer.wrap(levelBytes), path + " level");
+         }
+         world = new World(config, level);
+         Input input = new Input();
+         long played = 0;
+         for (long run = readVarLong(in); run != 0; run = readVarLong(in)) {
+            input.setBits(in.readUnsignedByte());
+            for (long t = 0; t < run; t++) {
+               world.step(input);
+            }
+            played += run;
+         }
+         ticks = in.readLong();
+         if (ticks != played) {
+            throw new IOException(path + " holds " + played + " steps but expects " + ticks);
+         }
+         expectedScore = in.readInt();
+         expectedLevel = in.readInt();
+         expectedLives = in.readInt();
+         expectedChecksum = in.readLong();
+      }
+   }
+
+   public boolean matches() {
+      return world.getScore() == expectedScore && world.getLevel() == expectedLevel &&
+             world.getLives() == expectedLives && world.checksum() == expectedChecksum;
+   }
+
+   public World getWorld() {
+      return world;
+   }
+
+   public long getTicks() {
+      return ticks;
+   }
+
+   private static long readVarLong(DataInputStream in) throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+         int b = in.readUnsignedByte();
+         value |= (long) (b & 0x7F) << shift;
+         if ((b & 0x80) == 0) {
+            return value;
+         }
+      }
+      throw new EOFException("malformed run length");
+   }
+
+   public static void main(String[] args) throws IOException {
+      boolean allMatch = true;
+      for (String path : args) {
+         long start = System.nanoTime();
+         Replay replay = new Replay(path);
+         double seconds = (System.nanoTime() - start) / 1e9;
+         World w = replay.getWorld();
+         System.out.printf("%s: %s, %d ticks in %.3f s, level %d, score %d, lives %d%n",
+                           path, replay.matches() ? "OK" : "MISMATCH", replay.getTicks(), seconds,
+                           w.getLevel(), w.getScore(), w.getLives());
+         allMatch &= replay.matches();
+      }
+      System.exit(allMatch ? 0 : 1);
+   }
+}
@@ -0,0 +1,35 @@
+/*
+ * This is part of a simple breakout clone.
+ * ScalarNarrowphase.java is the plain Java Narrowphase, one box at a time.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+final class ScalarNarrowphase implements Narrowphase {
+   @Override
+   public int cull(double px, double py, double vx, double vy, double r, double tMax, BrickLanes lanes) {
+      if (vx == 0 || vy == 0) {
+         return lanes.count; // Swept.circleBox takes its own branch for these
+      }
+      return cull(px, py, vx, vy, r, tMax, lanes, 0, 0);
+   }
+
+   // Cull boxes from on, writing survivors from kept on; shared with the
+   // vector version for the boxes left over after its last full vector
+   static int cull(double px, double py, double vx, double vy, double r, double tMax,
+                   BrickLanes lanes, int from, int kept) {
+      double[] nearX = vx > 0 ? lanes.minX : lanes.maxX, farX = vx > 0 ? lanes.maxX : lanes.minX;
+      double[] nearY = vy > 0 ? lanes.minY : lanes.maxY, farY = vy > 0 ? lanes.maxY : lanes.minY;
+      double nearR = vx > 0 ? -r : r, nearRY = vy > 0 ? -r : r;
+      for (int k = from; k < lanes.count; k++) {
+         // the same expressions as Swept.circleBox, so results round the same way
+         double tEnter = Math.max((nearX[k] + nearR - px) / vx, (nearY[k] + nearRY - py) / vy);
+         double tExit = Math.min((farX[k] - nearR - px) / vx, (farY[k] - nearRY - py) / vy);
+         if (tEnter <= tExit && tExit > 0 && tEnter <= tMax && tEnter >= 0) {
+            lanes.move(k, kept++);
+         }
+      }
+      lanes.count = kept;
+      return kept;
+   }
+}
@@ -0,0 +1,318 @@
+/*
+ * This is part of a simple breakout clone.
+ * SnapshotRing.java keeps the last few seconds of a World, one snapshot per
+ * step, in a fixed preallocated byte arena, plus one quick-save slot.
+ * Every keyInterval-th snapshot is a keyframe (World.writeState); the rest are
+ * stored as deltas against the last keyframe: the state XORed with it, as runs
+ * of (varint zero bytes skipped, varint literal length, literal bytes).
+ * Most of the state is unchanged between ticks, so a delta is a few dozen bytes.
+ * When the arena is full the oldest keyframe and its deltas are dropped.
+ * Usage: java -cp Breakout.jar breakout.sim.SnapshotRing [seconds] [balls]
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.nio.ByteBuffer;
+
+public class SnapshotRing {
+   private static final int DEFAULT_KEY_INTERVAL = 60;
+   private static final int MIN_ZERO_RUN = 3; // shorter runs of unchanged bytes stay in the literal
+   private static final int DELTA_BUDGET_PER_BALL = 20; // arena bytes a delta is expected to need per ball
+   private static final int REPEATS = 1000; // timed quick-saves and quick-loads in main
+   private final World world;
+   private final int keyInterval;
+   private final int stateBytes; // largest full state
+   // Arena of snapshots, written in a circle
+   private final byte[] arena;
+   private int writePos = 0;
+   // One entry per stored snapshot, oldest at first
+   private final int[] offset, length;
+   private final boolean[] key;
+   private int first = 0, count = 0;
+   private int sinceKey = 0; // deltas stored since the newest keyframe
+   // Scratch buffers
+   private final byte[] state, keyState, delta;
+   private final ByteBuffer stateBuffer;
+   private int keyLength;
+   private final byte[] saved; // quick-save slot
+   private int savedLength = -1;
+
+   public SnapshotRing(World world, double seconds) {
+      this(world, seconds, DEFAULT_KEY_INTERVAL);
+   }
+
+   public SnapshotRing(World world, double seconds, int keyInterval) {
+      this.world = world;
+      this.keyInterval = keyInterval;
+      stateBytes = world.maxStateBytes();
+      // one keyframe interval more than asked for, so the oldest seconds never lack their keyframe
+      int entries = (int) Math.ceil(seconds * world.getConfig().tickRate) + keyInterval;
+      offset = new int[entries];
+      length = new int[entries];
+      key = new boolean[entries];
+      // keyframes at full size; moving balls are most of what a delta holds
+      int keyframes = entries / keyInterval + 2;
+      int deltaBudget = world.getBalls().capacity() * DELTA_BUDGET_PER_BALL + 64;
+      arena = new byte[keyframes * stateBytes + (entries - keyframes) * deltaBudget];
+      state = new byte[stateBytes];
+      keyState = new byte[stateBytes];
+      delta = new byte[stateBytes + stateBytes / 2 + 16]; // worst case of the run encoding
+      stateBuffer = ByteBuffer.wrap(state);
+      saved = new byte[stateBytes];
+   }
+
+   // Store the World as it is now; call once per step
+   public void record() {
+      int stateLength = capture();
+      if (count == 0 || sinceKey + 1 >= keyInterval || stateLength != keyLength) {
+         System.arraycopy(state, 0, keyState, 0, stateLength);
+         keyLength = stateLength;
+         store(state, stateLength, true);
+         sinceKey = 0;
+      } else {
+         store(delta, encodeDelta(stateLength), false);
+         sinceKey++;
+      }
+   }
+
+   // Go back up to ticks steps (as far as the ring reaches); newer snapshots
+   // are dropped. Returns the steps actually gone back.
+   public int rewind(int ticks) {
+      if (count == 0) {
+         return 0;
+      }
+      int back = Math.min(ticks, count - 1);
+      int target = count - 1 - back;
+      // the keyframe of the target is at most keyInterval entries before it
+      int keyIndex = target;
+      while (!key[slot(keyIndex)]) {
+         keyIndex--;
+      }
+      int keySlot = slot(keyIndex);
+      keyLength = length[keySlot];
+      System.arraycopy(arena, offset[keySlot], keyState, 0, keyLength);
+      System.arraycopy(keyState, 0, state, 0, keyLength);
+      int targetSlot = slot(target);
+      if (!key[targetSlot]) {
+         decodeDelta(offset[targetSlot], length[targetSlot]);
+      }
+      restore(state, keyLength);
+      count = target + 1;
+      writePos = offset[targetSlot] + length[targetSlot];
+      sinceKey = target - keyIndex;
+      return back;
+   }
+
+   public void quickSave() {
+      savedLength = capture();
+      System.arraycopy(state, 0, saved, 0, savedLength);
+   }
+
+   // Returns false if nothing was saved. The rewind history is cleared,
+   // since it led up to a different state.
+   public boolean quickLoad() {
+      if (savedLength < 0) {
+         return false;
+      }
+      restore(saved, savedLength);
+      clear();
+      return true;
+   }
+
+   public void clear() {
+      first = 0;
+      count = 0;
+      writePos = 0;
+      sinceKey = 0;
+   }
+
+   private int capture() {
+      stateBuffer.clear();
+      world.writeState(stateBuffer);
+      return stateBuffer.position();
+   }
+
+   private void restore(byte[] bytes, int stateLength) {
+      world.readState(ByteBuffer.wrap(bytes, 0, stateLength));
+   }
+
+   private int slot(int index) {
+      return (first + index) % offset.length;
+   }
+
+   // XOR state against keyState into delta; returns its length
+   private int encodeDelta(int stateLength) {
+      int out = 0, i = 0;
+      while (i < stateLength) {
+         int zeros = i;
+         while (i < stateLength && state[i] == keyState[i]) {
+            i++;
+         }
+         int literal = i;
+         while (i < stateLength && !unchangedRun(i, stateLength)) {
+            i++;
+         }
+         out = putVarInt(out, literal - zeros);
+         out = putVarInt(out, i - literal);
+         for (int k = literal; k < i; k++) {
+            delta[out++] = (byte) (state[k] ^ keyState[k]);
+         }
+      }
+      return out;
+   }
+
+   private boolean unchangedRun(int i, int stateLength) {
+      for (int k = i; k < i + MIN_ZERO_RUN; k++) {
+         if (k == stateLength) {
+            return true;
+         }
+         if (state[k] != keyState[k]) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   // Apply the delta at arena[at, at + len) to state, which holds its keyframe
+   private void decodeDelta(int at, int len) {
+      int end = at + len, i = 0;
+      while (at < end) {
+         int zeros = 0, literal = 0;
+         for (int shift = 0; ; shift += 7) {
+            byte b = arena[at++];
+            zeros |= (b & 0x7F) << shift;
+            if (b >= 0) {
+               break;
+            }
+         }
+         for (int shift = 0; ; shift += 7) {
+            byte b = arena[at++];
+            literal |= (b & 0x7F) << shift;
+            if (b >= 0) {
+               break;
+            }
+         }
+         i += zeros;
+         for (int k = 0; k < literal; k++) {
+            state[i++] ^= arena[at++];
+         }
+      }
+   }
+
+   private int putVarInt(int out, int value) {
+      while ((value & ~0x7F) != 0) {
+         delta[out++] = (byte) ((value & 0x7F) | 0x80);
+         value >>>= 7;
+      }
+      delta[out++] = (byte) value;
+      return out;
+   }
+
+   private void store(byte[] bytes, int len, boolean isKey) {
+      if (len > arena.length) {
+         return; // cannot happen with the arena sized from maxStateBytes
+      }
+      if (count == offset.length) {
+         evictOldest();
+      }
+      if (writePos + len > arena.length) {
+         // the tail of the arena holds the oldest snapshots; free it and wrap
+         while (count > 0 && offset[first] >= writePos) {
+            evictOldest();
+         }
+         writePos = 0;
+      }
+      while (count > 0 && offset[first] >= writePos && offset[first] < writePos + len) {
+         evictOldest();
+      }
+      int s = slot(count);
+      offset[s] = writePos;
+      length[s] = len;
+      key[s] = isKey;
+      System.arraycopy(bytes, 0, arena, writePos, len);
+      writePos += len;
+      count++;
+   }
+
+   // Drop the oldest keyframe, and the deltas that need it
+   private void evictOldest() {
+      do {
+         first = (first + 1) % offset.length;
+         count--;
+      } while (count > 0 && !key[first]);
+   }
+
+   // Getters
+   public int size() {
+      return count;
+   }
+
+   // Seconds of play the ring can go back now
+   public double getSeconds() {
+      return Math.max(count - 1, 0) / (double) world.getConfig().tickRate;
+   }
+
+   public int getArenaUsed() {
+      if (count == 0) {
+         return 0;
+      }
+      int start = offset[first];
+      return writePos > start ? writePos - start : arena.length - start + writePos;
+   }
+
+   // Bytes held by the ring and its buffers, all allocated up front
+   public long getFootprint() {
+      return arena.length + offset.length * (4L + 4 + 1) + state.length + keyState.length +
+             delta.length + saved.length;
+   }
+
+   // Fill a ring from an autopilot game, then time a full rewind, a quick-save
+   // and a quick-load; the last of several rounds is reported, once the JIT is warm
+   public static void main(String[] args) {
+      double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 10;
+      GameConfig config = new GameConfig();
+      config.ballCount = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+      for (int round = 0; round < 5; round++) {
+         World world = new World(config);
+         Input input = new Input();
+         SnapshotRing ring = new SnapshotRing(world, seconds);
+         long ticks = (long) (seconds * 3 * config.tickRate);
+         long recordNanos = 0;
+         for (long t = 0; t < ticks; t++) {
+            Headless.autopilot(world, input);
+            world.step(input);
+            input.clearPresses();
+            long start = System.nanoTime();
+            ring.record();
+            recordNanos += System.nanoTime() - start;
+         }
+         long checksum = world.checksum();
+         long start = System.nanoTime();
+         for (int n = 0; n < REPEATS; n++) {
+            ring.quickSave();
+         }
+         double saveNanos = (System.nanoTime() - start) / (double) REPEATS;
+         int stored = ring.size(), used = ring.getArenaUsed();
+         double held = ring.getSeconds();
+         start = System.nanoTime();
+         int back = ring.rewind(Integer.MAX_VALUE);
+         long rewindNanos = System.nanoTime() - start;
+         start = System.nanoTime();
+         for (int n = 0; n < REPEATS; n++) {
+            ring.quickLoad();
+         }
+         double loadNanos = (System.nanoTime() - start) / (double) REPEATS;
+         if (round < 4) {
+            continue;
+         }
+         System.out.printf("%d snapshots of up to %d bytes: %.1f s held in %d of %d arena bytes " +
+                           "(%.0f bytes per snapshot), %d bytes in all%n",
+                           stored, world.maxStateBytes(), held, used, ring.arena.length,
+                           used / (double) stored, ring.getFootprint());
+         System.out.printf("record %.0f ns per step, rewind %d steps %.1f us, " +
+                           "quick-save %.1f us, quick-load %.1f us, quick-load state %s%n",
+                           recordNanos / (double) ticks, back, rewindNanos / 1e3, saveNanos / 1e3,
+                           loadNanos / 1e3, world.checksum() == checksum ? "OK" : "MISMATCH");
+      }
+   }
+}
@@ -0,0 +1,52 @@
+/*
+ * This is part of a simple breakout clone.
+ * StateFrame.java is one World state handed from the simulation thread to the
+ * thread that draws it (see FrameExchange): the World.writeState and
+ * writeMotion bytes of one step. A newer frame replaces an older one the
+ * reader never took, so events travel separately, in a MessageQueue.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.nio.ByteBuffer;
+
+public class StateFrame {
+   private final ByteBuffer state;
+   private long tick;
+   private long nanos; // System.nanoTime() when captured
+   long sequence; // set by FrameExchange.publish: 1 for the first frame, then up by one
+
+   public StateFrame(World world) {
+      state = ByteBuffer.allocate(world.maxStateBytes() + world.maxMotionBytes());
+   }
+
+   // Writer: store the World after a step
+   public void capture(World world, long nanos) {
+      state.clear();
+      world.writeState(state);
+      world.writeMotion(state);
+      state.flip();
+      tick = world.getTick();
+      this.nanos = nanos;
+   }
+
+   // Reader: make a World built from the same config and level match this frame
+   public void applyTo(World view) {
+      state.rewind();
+      view.readState(state);
+      view.readMotion(state);
+   }
+
+   // Getters
+   public long getTick() {
+      return tick;
+   }
+
+   public long getNanos() {
+      return nanos;
+   }
+
+   public long getSequence() {
+      return sequence;
+   }
+}
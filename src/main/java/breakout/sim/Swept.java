@@ -0,0 +1,95 @@
+/*
+ * This is part of a simple breakout clone.
+ * Swept.java is the continuous collision test between a moving circle and a box.
+ * The box is grown by the circle radius (a rounded rectangle), and the circle
+ * centre is traced as a ray against it, so a fast ball cannot skip through.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+public final class Swept {
+   // Time of impact and surface normal of the last hit found
+   public static final class Contact {
+      public double t, nx, ny;
+   }
+
+   private Swept() {
+   }
+
+   // Trace a circle at (px, py) moving by (vx, vy) per unit time against a box.
+   // Fills out and returns true if it touches the box at some t in [0, tMax]
+   // while moving into it.
+   public static boolean circleBox(double px, double py, double vx, double vy, double r,
+                                   double minX, double minY, double maxX, double maxY,
+                                   double tMax, Contact out) {
+      // slab test against the box grown by r on each side
+      double tEnter = Double.NEGATIVE_INFINITY, tExit = Double.POSITIVE_INFINITY;
+      double nx = 0, ny = 0;
+      if (vx == 0) {
+         if (px < minX - r || px > maxX + r) {
+            return false;
+         }
+      } else {
+         double t1 = ((vx > 0 ? minX - r : maxX + r) - px) / vx;
+         double t2 = ((vx > 0 ? maxX + r : minX - r) - px) / vx;
+         tEnter = t1;
+         tExit = t2;
+         nx = vx > 0 ? -1 : 1;
+      }
+      if (vy == 0) {
+         if (py < minY - r || py > maxY + r) {
+            return false;
+         }
+      } else {
+         double t1 = ((vy > 0 ? minY - r : maxY + r) - py) / vy;
+         double t2 = ((vy > 0 ? maxY + r : minY - r) - py) / vy;
+         if (t1 > tEnter) {
+            tEnter = t1;
+            nx = 0;
+            ny = vy > 0 ? -1 : 1;
+         }
+         tExit = Math.min(tExit, t2);
+      }
+      if (tEnter > tExit || tExit <= 0 || tEnter > tMax || tEnter < 0) {
+         return false;
+      }
+      // a hit beyond both box edges is in a rounded corner of the grown box
+      double hx = px + vx * tEnter, hy = py + vy * tEnter;
+      boolean outX = hx < minX || hx > maxX;
+      boolean outY = hy < minY || hy > maxY;
+      if (outX && outY) {
+         return circlePoint(px, py, vx, vy, r, hx < minX ? minX : maxX, hy < minY ? minY : maxY,
+                            tMax, out);
+      }
+      out.t = tEnter;
+      out.nx = nx;
+      out.ny = ny;
+      return true;
+   }
+
+   // Trace a circle against a single point (a box corner)
+   private static boolean circlePoint(double px, double py, double vx, double vy, double r,
+                                      double cx, double cy, double tMax, Contact out) {
+      double dx = px - cx, dy = py - cy;
+      double a = vx * vx + vy * vy;
+      double b = dx * vx + dy * vy;
+      double c = dx * dx + dy * dy - r * r;
+      if (a == 0 || b >= 0) {
+         return false; // not moving towards the corner
+      }
+      double disc = b * b - a * c;
+      if (disc < 0) {
+         return false;
+      }
+      double t = Math.max((-b - Math.sqrt(disc)) / a, 0);
+      if (t > tMax) {
+         return false;
+      }
+      double nx = dx + vx * t, ny = dy + vy * t;
+      double len = Math.sqrt(nx * nx + ny * ny);
+      out.t = t;
+      out.nx = len == 0 ? 0 : nx / len;
+      out.ny = len == 0 ? -1 : ny / len;
+      return true;
+   }
+}
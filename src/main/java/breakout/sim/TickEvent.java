@@ -0,0 +1,37 @@
+/*
+ * This is part of a simple breakout clone.
+ * TickEvent.java is the JDK Flight Recorder event for one simulation step
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("breakout.Tick")
+@Label("Simulation Step")
+@Category("Breakout")
+@Description("Phase timings of one World.step")
+class TickEvent extends Event {
+   @Label("Tick")
+   long tick;
+
+   @Label("Paddle")
+   @Timespan(Timespan.NANOSECONDS)
+   long paddle;
+
+   @Label("Balls")
+   @Timespan(Timespan.NANOSECONDS)
+   long balls;
+
+   @Label("Rules")
+   @Timespan(Timespan.NANOSECONDS)
+   long rules;
+
+   @Label("Live Balls")
+   int liveBalls;
+}
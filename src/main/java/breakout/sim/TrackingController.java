@@ -0,0 +1,42 @@
+/*
+ * This is part of a simple breakout clone.
+ * TrackingController.java is a heuristic player that follows the lowest ball.
+ * It only looks at the field every few steps and sometimes misjudges the
+ * ball position, so it loses lives like a person would.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.util.SplittableRandom;
+
+public class TrackingController implements PaddleController {
+   private final SplittableRandom random;
+   private final int reactionTicks; // steps between looks at the field
+   private final double aimError; // max error in the guessed ball x, in pixels
+   private double targetX;
+
+   public TrackingController(long seed, int reactionTicks, double aimError) {
+      this.random = new SplittableRandom(seed);
+      this.reactionTicks = Math.max(reactionTicks, 1);
+      this.aimError = aimError;
+   }
+
+   @Override
+   public void control(World world, Input input) {
+      if (!world.hasRoundStarted()) {
+         input.pressLaunch();
+      }
+      if (world.getTick() % reactionTicks == 0) {
+         BallSet balls = world.getBalls();
+         int lowest = 0;
+         for (int i = 0; i < balls.size(); i++) {
+            if (balls.isLive(i) && (!balls.isLive(lowest) || balls.getY(i) > balls.getY(lowest))) {
+               lowest = i;
+            }
+         }
+         targetX = balls.getX(lowest) + (aimError > 0 ? random.nextDouble(-aimError, aimError) : 0);
+      }
+      double offset = targetX - world.getPaddleMidX();
+      input.setPaddleDir(Math.abs(offset) < world.getConfig().paddleSpeed ? 0 : (int) Math.signum(offset));
+   }
+}
@@ -0,0 +1,611 @@
+/*
+ * This is part of a simple breakout clone.
+ * World.java is the headless Model for the game: ball, paddle, bricks and rules.
+ * It has no JavaFX dependency, so it can be stepped without a display.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class World {
+   private static final int BALLINIT_Y   = 51; // ball start height above the floor
+   private static final int PADDLEINIT_Y = -25; // paddle offset from the floor
+   private static final int BASE_TICK_RATE = 60; // tick rate the configured speeds are given for
+   private static final int MAX_CONTACTS = 16; // surfaces resolved per step before giving up
+   private static final int BATCH_MIN = 8; // fewer candidates than this skip the narrowphase cull
+   private static final int HIT_NONE   = -1; // contact kinds; bricks are 0 and up
+   private static final int HIT_WALL   = -2;
+   private static final int HIT_FLOOR  = -3;
+   private static final int HIT_PADDLE = -4;
+   private static final WorldListener NO_LISTENER = new WorldListener() {};
+   private final GameConfig config;
+   private final BrickField bricks;
+   private final BrickGrid brickGrid;
+   private final LevelFile level; // brick layout to load, or null for the default grid
+   private int[] destroyed = new int[16]; // bricks destroyed in the current step
+   private int destroyedCount = 0;
+   private int layoutCount = 0; // times the bricks have been laid out
+   private final double speedScale; // converts configured speeds to the actual tick rate
+   private WorldListener listener = NO_LISTENER;
+   private final EventQueue events = new EventQueue(64);
+   private Profiler profiler; // phase timing, only when attached
+   // Game fields
+   private boolean roundHasStarted = false;
+   private int currentLives;
+   private int currentLevel = 1;
+   private int currentScore = 0;
+   private long tick = 0;
+   // Ball fields
+   private final BallSet balls;
+   // Ball being moved: loaded from balls, stepped, then stored back
+   private double ballX, ballY, ballVelX, ballVelY;
+   private boolean ballDead;
+   private final Swept.Contact contact = new Swept.Contact();
+   private final Narrowphase narrowphase = Narrowphase.best();
+   private final BrickLanes lanes = new BrickLanes(64);
+   // Paddle fields
+   private double paddleX; // left edge of paddle
+   private double paddleY; // top edge of paddle
+   private double paddleVelX;
+   private double paddlePrevX; // paddle position at the start of the step
+
+   public World(GameConfig config) {
+      this(config, null);
+   }
+
+   public World(GameConfig config, LevelFile level) {
+      this.config = config;
+      this.level = level;
+      this.currentLives = config.defaultLives;
+      this.bricks = new BrickField(config.brickRows * config.brickCols);
+      this.balls = new BallSet(Math.max(config.ballCount, 1));
+      this.brickGrid = new BrickGrid(config.brickXGap, config.brickYGap);
+      this.speedScale = (double) BASE_TICK_RATE / config.tickRate;
+      resetBallAndPaddle();
+      createBricks();
+   }
+
+   public void setListener(WorldListener listener) {
+      this.listener = listener == null ? NO_LISTENER : listener;
+   }
+
+   public void setProfiler(Profiler profiler) {
+      this.profiler = profiler;
+   }
+
+   /*
+    * Game Loop Methods
+    */
+   public void step(Input input) {
+      long start = now();
+      destroyedCount = 0;
+      events.clear();
+      if (input.isExtraLife()) {
+         currentLives++;
+         events.push(EventQueue.EXTRA_LIFE, 0);
+      }
+      if (input.isLaunch() && !roundHasStarted) {
+         roundHasStarted = true;
+         events.push(EventQueue.ROUND_STARTED, 0);
+      }
+      paddleVelX = input.getPaddleDir() * config.paddleSpeed * speedScale;
+      balls.savePositions();
+      paddlePrevX = paddleX;
+      updatePaddle();
+      long paddleDone = now();
+      if (roundHasStarted) {
+         updateBalls();
+      } else {
+         for (int i = 0; i < balls.size(); i++) {
+            balls.set(i, getPaddleMidX(), balls.getY(i), balls.getVelX(i), balls.getVelY(i));
+         }
+      }
+      // destroyed bricks leave the broadphase in one batch at the end of the ball phase
+      for (int k = 0; k < destroyedCount; k++) {
+         brickGrid.remove(bricks, destroyed[k]);
+      }
+      long ballsDone = now();
+      checkBrickAndWinStatus();
+      checkBallAndLivesStatus();
+      // the listener hears the step's events once its simulation is done
+      events.dispatch(listener, 0);
+      if (profiler != null) {
+         recordPhases(start, paddleDone, ballsDone, now());
+      }
+      tick++;
+   }
+
+   private long now() {
+      return profiler == null ? 0 : System.nanoTime();
+   }
+
+   private void recordPhases(long start, long paddleDone, long ballsDone, long end) {
+      profiler.record(Profiler.Phase.PADDLE, paddleDone - start);
+      profiler.record(Profiler.Phase.BALLS, ballsDone - paddleDone);
+      profiler.record(Profiler.Phase.RULES, end - ballsDone);
+      profiler.record(Profiler.Phase.STEP, end - start);
+      TickEvent event = new TickEvent();
+      if (event.shouldCommit()) {
+         event.tick = tick;
+         event.paddle = paddleDone - start;
+         event.balls = ballsDone - paddleDone;
+         event.rules = end - ballsDone;
+         event.liveBalls = balls.liveCount();
+         event.commit();
+      }
+   }
+
+   private void updatePaddle() {
+      paddleX += paddleVelX;
+      if (paddleX < 0) {
+         paddleX = 0;
+      } else if (paddleX + config.paddleWidth > config.width) {
+         paddleX = config.width - config.paddleWidth;
+      }
+   }
+
+   private void updateBalls() {
+      for (int i = 0; i < balls.size(); i++) {
+         if (balls.isLive(i)) {
+            ballX = balls.getX(i);
+            ballY = balls.getY(i);
+            ballVelX = balls.getVelX(i);
+            ballVelY = balls.getVelY(i);
+            ballDead = false;
+            updateBall();
+            balls.set(i, ballX, ballY, ballVelX, ballVelY);
+            if (ballDead) {
+               balls.kill(i);
+            }
+         }
+      }
+   }
+
+   // Move the ball through one step, bouncing off every surface it reaches
+   // in the order it reaches them
+   private void updateBall() {
+      double r = config.ballRadius;
+      // the paddle may have moved into the ball this step
+      if (ballVelY > 0 &&
+          intersects(ballX - r, ballY - r, ballX + r, ballY + r,
+                     paddleX, paddleY, paddleX + config.paddleWidth, paddleY + config.paddleHeight)) {
+         deflectOffPaddle();
+      }
+      double remaining = 1; // fraction of the step still to travel
+      for (int n = 0; n < MAX_CONTACTS && remaining > 0 && !ballDead; n++) {
+         int hit = findFirstContact(remaining);
+         ballX += ballVelX * contact.t;
+         ballY += ballVelY * contact.t;
+         remaining -= contact.t;
+         switch (hit) {
+            case HIT_NONE:
+               remaining = 0;
+               break;
+            case HIT_FLOOR:
+               ballVelY = 0;
+               ballVelX = 0;
+               ballDead = true;
+               break;
+            case HIT_WALL:
+               reflect();
+               break;
+            case HIT_PADDLE:
+               if (contact.ny < 0) {
+                  deflectOffPaddle();
+               } else {
+                  reflect();
+               }
+               break;
+            default:
+               reflect();
+               hitBrick(hit);
+         }
+      }
+   }
+
+   // Sets contact to the earliest surface the ball reaches within maxT and
+   // returns what it is: a HIT_ constant or the index of a brick
+   private int findFirstContact(double maxT) {
+      double r = config.ballRadius;
+      int hit = HIT_NONE;
+      contact.t = maxT;
+      // walls and floor
+      if (ballVelX > 0) {
+         hit = wallContact((config.width - r - ballX) / ballVelX, -1, 0, HIT_WALL, hit);
+      } else if (ballVelX < 0) {
+         hit = wallContact((r - ballX) / ballVelX, 1, 0, HIT_WALL, hit);
+      }
+      if (ballVelY < 0) {
+         hit = wallContact((r - ballY) / ballVelY, 0, 1, HIT_WALL, hit);
+      } else if (ballVelY > 0) {
+         hit = wallContact((config.height - r - ballY) / ballVelY, 0, -1, HIT_FLOOR, hit);
+      }
+      if (Swept.circleBox(ballX, ballY, ballVelX, ballVelY, r, paddleX, paddleY,
+                          paddleX + config.paddleWidth, paddleY + config.paddleHeight,
+                          contact.t, contact)) {
+         hit = HIT_PADDLE;
+      }
+      // broadphase: only bricks in grid cells touched by the rest of the path
+      double endX = ballX + ballVelX * maxT, endY = ballY + ballVelY * maxT;
+      int candidates = brickGrid.query(Math.min(ballX, endX) - r, Math.min(ballY, endY) - r,
+                                       Math.max(ballX, endX) + r, Math.max(ballY, endY) + r);
+      int[] found = brickGrid.results();
+      if (candidates >= BATCH_MIN) {
+         // dense areas: cull the live candidates in one batch, then test the few left exactly
+         lanes.clear();
+         for (int c = 0; c < candidates; c++) {
+            if (bricks.isAlive(found[c])) {
+               lanes.add(bricks, found[c]);
+            }
+         }
+         int kept = narrowphase.cull(ballX, ballY, ballVelX, ballVelY, r, contact.t, lanes);
+         for (int k = 0; k < kept; k++) {
+            if (Swept.circleBox(ballX, ballY, ballVelX, ballVelY, r, lanes.getMinX(k), lanes.getMinY(k),
+                                lanes.getMaxX(k), lanes.getMaxY(k), contact.t, contact)) {
+               hit = lanes.getId(k);
+            }
+         }
+         return hit;
+      }
+      for (int c = 0; c < candidates; c++) {
+         int i = found[c];
+         if (bricks.isAlive(i) &&
+             Swept.circleBox(ballX, ballY, ballVelX, ballVelY, r,
+                             bricks.getXLeft(i), bricks.getYUpper(i),
+                             bricks.getXRight(i), bricks.getYLower(i), contact.t, contact)) {
+            hit = i;
+         }
+      }
+      return hit;
+   }
+
+   private int wallContact(double t, double nx, double ny, int wall, int hit) {
+      t = Math.max(t, 0);
+      if (t > contact.t) {
+         return hit;
+      }
+      contact.t = t;
+      contact.nx = nx;
+      contact.ny = ny;
+      return wall;
+   }
+
+   // Bounce the ball velocity off the contact normal
+   private void reflect() {
+      double dot = ballVelX * contact.nx + ballVelY * contact.ny;
+      ballVelX -= 2 * dot * contact.nx;
+      ballVelY -= 2 * dot * contact.ny;
+   }
+
+   private void hitBrick(int i) {
+      int newBrickHealth = bricks.getHealth(i) - 1;
+      if (newBrickHealth == 0) {
+         killBrick(i);
+         currentScore += config.scoreIncrement;
+         events.push(EventQueue.BRICK_DESTROYED, i);
+      } else {
+         bricks.setHealth(i, newBrickHealth);
+      }
+      events.push(EventQueue.BRICK_HIT, i);
+   }
+
+   private void checkBrickAndWinStatus() {
+      if (bricks.liveCount() == 0) {
+         resetBallAndPaddle();
+         currentLevel++;
+         createBricks();
+         events.push(EventQueue.LEVEL_CLEARED, 0);
+      }
+   }
+
+   // Ball movement velocities adapted from : https://gamedev.stackexchange.com/a/21048
+   private void deflectOffPaddle() {
+      double speedX = ballVelX;
+      double speedY = ballVelY;
+      double posX = (ballX - getPaddleMidX()) / (config.paddleWidth/2);
+      double speedXY = Math.sqrt(speedX * speedX + speedY * speedY);
+      speedX = speedXY * Math.max(-1, Math.min(1, posX)) * config.paddleXMod;
+      ballVelX = speedX;
+      ballVelY = -Math.sqrt(speedXY * speedXY - speedX * speedX);
+      events.push(EventQueue.PADDLE_HIT, 0);
+   }
+
+   // A life is lost once every ball in play has reached the floor
+   private void checkBallAndLivesStatus() {
+      if (roundHasStarted && balls.liveCount() == 0) {
+         resetBallAndPaddle();
+         if (--currentLives == 0) {
+            int finalScore = currentScore;
+            currentLives = config.defaultLives;
+            currentScore = 0;
+            createBricks();
+            events.push(EventQueue.GAME_OVER, finalScore);
+         } else {
+            events.push(EventQueue.BALL_LOST, 0);
+         }
+      }
+   }
+
+   // Same inclusive test as javafx.geometry.Bounds.intersects
+   private static boolean intersects(double minX1, double minY1, double maxX1, double maxY1,
+                                     double minX2, double minY2, double maxX2, double maxY2) {
+      return maxX2 >= minX1 && maxY2 >= minY1 && minX2 <= maxX1 && minY2 <= maxY1;
+   }
+
+   /*
+    * Object Creation Methods
+    */
+   private void resetBallAndPaddle() {
+      roundHasStarted = false;
+      paddleX = config.width/2 - config.paddleWidth/2;
+      paddleY = config.height - config.paddleHeight + PADDLEINIT_Y;
+      paddleVelX = 0;
+      paddlePrevX = paddleX;
+      balls.reset(config.ballCount, config.width/2, config.height - BALLINIT_Y,
+                  config.ballSpeed * speedScale, config.ballSpread);
+   }
+
+   private void createBricks() {
+      bricks.clear();
+      destroyedCount = 0;
+      layoutCount++;
+      if (level != null) {
+         // bricks past the right wall or below the floor can never be reached,
+         // so they stay in the file (a level wider than the world without --scroll)
+         level.loadInto(bricks, config.width, config.height);
+         brickGrid.rebuild(bricks);
+         return;
+      }
+      double xPos = config.brickXOffset;
+      double yPos = config.brickYOffset;
+      int colorIndex = config.brickColors - 1;
+      for (int i = 0; i < config.brickRows; i++) {
+         for (int j = 0; j < config.brickCols; j++) {
+            bricks.add(xPos, yPos, config.brickWidth, config.brickHeight,
+                       Math.floorMod(colorIndex, config.brickColors), 1);
+            xPos += config.brickXGap;
+         }
+         colorIndex--;
+         xPos = config.brickXOffset;
+         yPos += config.brickYGap;
+      }
+      brickGrid.rebuild(bricks);
+   }
+
+   // Marks a brick dead at once, so later contacts in the same step skip it,
+   // and queues it for removal from the grid and the view
+   private boolean killBrick(int brick) {
+      if (!bricks.kill(brick)) {
+         return false;
+      }
+      if (destroyedCount == destroyed.length) {
+         destroyed = Arrays.copyOf(destroyed, destroyedCount * 2);
+      }
+      destroyed[destroyedCount++] = brick;
+      return true;
+   }
+
+   // Removes a brick without scoring it (used by the mouse cheat); its event
+   // joins the last step's, for views that have not read them yet
+   public void destroyBrick(int brick) {
+      if (roundHasStarted && killBrick(brick)) {
+         brickGrid.remove(bricks, brick);
+         events.push(EventQueue.BRICK_DESTROYED, brick);
+         events.dispatch(listener, events.size() - 1);
+      }
+   }
+
+   // Collect the bricks in the grid cells a box touches (live ones, and dead
+   // ones not yet dropped from the grid), for views that show only part of the
+   // field; read them back from getBricksFound(). Costs what the box covers,
+   // however many bricks the field holds.
+   public int bricksIn(double minX, double minY, double maxX, double maxY) {
+      return brickGrid.query(minX, minY, maxX, maxY);
+   }
+
+   public int[] getBricksFound() {
+      return brickGrid.results();
+   }
+
+   // Returns the live brick under a point, or -1
+   public int brickAt(double x, double y) {
+      int candidates = brickGrid.query(x, y, x, y);
+      int[] found = brickGrid.results();
+      for (int c = 0; c < candidates; c++) {
+         int i = found[c];
+         if (bricks.isAlive(i) && x >= bricks.getXLeft(i) && x <= bricks.getXRight(i) &&
+             y >= bricks.getYUpper(i) && y <= bricks.getYLower(i)) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   // Fingerprint of score, lives, level and the brick field, for comparing runs
+   public long checksum() {
+      long hash = 1125899906842597L;
+      hash = 31 * hash + currentScore;
+      hash = 31 * hash + currentLives;
+      hash = 31 * hash + currentLevel;
+      for (int i = 0; i < bricks.size(); i++) {
+         hash = 31 * hash + (bricks.isAlive(i) ? bricks.getHealth(i) : -1);
+      }
+      return hash;
+   }
+
+   /*
+    * Snapshot Methods
+    */
+   // The whole game state, for rewind and quick-save (see SnapshotRing)
+   public void writeState(ByteBuffer out) {
+      out.putLong(tick);
+      out.put((byte) (roundHasStarted ? 1 : 0));
+      out.putInt(currentLives).putInt(currentLevel).putInt(currentScore).putInt(layoutCount);
+      out.putDouble(paddleX).putDouble(paddleY).putDouble(paddleVelX);
+      balls.writeState(out);
+      bricks.writeState(out);
+   }
+
+   // Views should reset themselves from the World afterwards
+   public void readState(ByteBuffer in) {
+      tick = in.getLong();
+      roundHasStarted = in.get() != 0;
+      currentLives = in.getInt();
+      currentLevel = in.getInt();
+      currentScore = in.getInt();
+      layoutCount = in.getInt();
+      paddleX = in.getDouble();
+      paddleY = in.getDouble();
+      paddleVelX = in.getDouble();
+      paddlePrevX = paddleX;
+      balls.readState(in);
+      bricks.readState(in);
+      brickGrid.rebuild(bricks);
+      destroyedCount = 0;
+      events.clear();
+   }
+
+   // Largest writeState can be
+   public int maxStateBytes() {
+      return 8 + 1 + 4 * 4 + 3 * 8 + balls.maxStateBytes() + bricks.maxStateBytes();
+   }
+
+   // Start-of-step positions, left out of writeState; a World read back with
+   // readState then readMotion draws blended between the same two steps
+   public void writeMotion(ByteBuffer out) {
+      out.putDouble(paddlePrevX);
+      balls.writeMotion(out);
+   }
+
+   public void readMotion(ByteBuffer in) {
+      paddlePrevX = in.getDouble();
+      balls.readMotion(in);
+   }
+
+   public int maxMotionBytes() {
+      return 8 + balls.maxMotionBytes();
+   }
+
+   /*
+    * Getters
+    */
+   public GameConfig getConfig() {
+      return config;
+   }
+
+   public BrickField getBricks() {
+      return bricks;
+   }
+
+   // Events of the last step (see EventQueue)
+   public EventQueue getEvents() {
+      return events;
+   }
+
+   // Bricks destroyed during the last step (or since, by destroyBrick),
+   // for views to remove in one pass
+   public int getDestroyedCount() {
+      return destroyedCount;
+   }
+
+   public int getDestroyed(int k) {
+      return destroyed[k];
+   }
+
+   public BallSet getBalls() {
+      return balls;
+   }
+
+   // Ball getters without an index refer to the first ball
+   public double getBallX() {
+      return balls.getX(0);
+   }
+
+   public double getBallY() {
+      return balls.getY(0);
+   }
+
+   // Position blended between the last two steps, alpha in [0, 1]
+   public double getBallX(double alpha) {
+      return getBallX(0, alpha);
+   }
+
+   public double getBallY(double alpha) {
+      return getBallY(0, alpha);
+   }
+
+   public double getBallX(int i, double alpha) {
+      return balls.getPrevX(i) + (balls.getX(i) - balls.getPrevX(i)) * alpha;
+   }
+
+   public double getBallY(int i, double alpha) {
+      return balls.getPrevY(i) + (balls.getY(i) - balls.getPrevY(i)) * alpha;
+   }
+
+   public double getBallVelX() {
+      return balls.getVelX(0);
+   }
+
+   public double getBallVelY() {
+      return balls.getVelY(0);
+   }
+
+   public double getBallRadius() {
+      return config.ballRadius;
+   }
+
+   public boolean isBallDead() {
+      return balls.liveCount() == 0;
+   }
+
+   public double getPaddleX() {
+      return paddleX;
+   }
+
+   public double getPaddleX(double alpha) {
+      return paddlePrevX + (paddleX - paddlePrevX) * alpha;
+   }
+
+   public double getPaddleY() {
+      return paddleY;
+   }
+
+   public double getPaddleMidX() {
+      return paddleX + config.paddleWidth/2;
+   }
+
+   public double getPaddleWidth() {
+      return config.paddleWidth;
+   }
+
+   public double getPaddleHeight() {
+      return config.paddleHeight;
+   }
+
+   public boolean hasRoundStarted() {
+      return roundHasStarted;
+   }
+
+   public int getLives() {
+      return currentLives;
+   }
+
+   public int getLevel() {
+      return currentLevel;
+   }
+
+   public int getScore() {
+      return currentScore;
+   }
+
+   public long getTick() {
+      return tick;
+   }
+
+   // Changes whenever a new level or game lays the bricks out again
+   public int getLayoutCount() {
+      return layoutCount;
+   }
+}
@@ -0,0 +1,25 @@
+/*
+ * This is part of a simple breakout clone.
+ * WorldListener.java receives the game events raised during World.step,
+ * in order, once the step's simulation is done (see EventQueue)
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+public interface WorldListener {
+   default void roundStarted() {}
+
+   default void extraLife() {}
+
+   default void brickHit(int brick) {}
+
+   default void brickDestroyed(int brick) {}
+
+   default void paddleHit() {}
+
+   default void ballLost() {}
+
+   default void gameOver(int finalScore) {}
+
+   default void levelCleared() {}
+}
@@ -0,0 +1,139 @@
+/*
+ * This is part of a simple breakout clone.
+ * ProtocolTest.java checks varints at their byte boundaries, frame lengths
+ * from Protocol.nextFrame, and how Session.read handles input frames that
+ * arrive in pieces or have lengths a client may not send.
+ * @author: Mickey Kim
+ */
+package breakout.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import breakout.sim.GameConfig;
+import breakout.sim.Input;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProtocolTest {
+   private ServerSocketChannel listener;
+   private SocketChannel client, server;
+
+   @Test
+   void varIntsRoundTrip() {
+      int[] values = {0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, -1};
+      int[] sizes = {1, 1, 1, 2, 2, 2, 3, 5, 5};
+      ByteBuffer buffer = ByteBuffer.allocate(64);
+      for (int v = 0; v < values.length; v++) {
+         buffer.clear();
+         Protocol.putVarInt(buffer, values[v]);
+         assertEquals(sizes[v], buffer.position(), "bytes for " + values[v]);
+         assertTrue(buffer.position() <= Protocol.MAX_VARINT);
+         buffer.flip();
+         assertEquals(values[v], Protocol.getVarInt(buffer));
+         assertEquals(0, buffer.remaining());
+      }
+   }
+
+   @Test
+   void nextFrameWaitsForWholeFrames() throws ProtocolException {
+      ByteBuffer in = ByteBuffer.allocate(64);
+      in.put((byte) 0).put((byte) 0).flip();
+      assertEquals(-1, Protocol.nextFrame(in)); // length not all here
+      in.clear();
+      in.putInt(10).put(new byte[5]).flip();
+      assertEquals(-1, Protocol.nextFrame(in)); // body not all here
+      in.clear();
+      in.putInt(10).put(new byte[10]).flip();
+      assertEquals(10, Protocol.nextFrame(in));
+      assertEquals(0, in.position()); // nothing consumed
+      in.clear();
+      in.putInt(-5).flip();
+      assertThrows(ProtocolException.class, () -> Protocol.nextFrame(in));
+   }
+
+   @Test
+   void frameWrittenByBeginAndEndFrame() throws ProtocolException {
+      ByteBuffer out = ByteBuffer.allocate(64);
+      int start = Protocol.beginFrame(out, Protocol.INPUT);
+      out.put((byte) Input.LEFT_BIT);
+      Protocol.endFrame(out, start);
+      out.flip();
+      assertEquals(2, Protocol.nextFrame(out));
+      assertEquals(Protocol.INPUT, out.get(Protocol.HEADER_BYTES));
+   }
+
+   @BeforeEach
+   void connect() throws IOException {
+      listener = ServerSocketChannel.open();
+      listener.bind(new InetSocketAddress("127.0.0.1", 0));
+      client = SocketChannel.open(listener.getLocalAddress());
+      server = listener.accept();
+   }
+
+   @AfterEach
+   void close() throws IOException {
+      client.close();
+      server.close();
+      listener.close();
+   }
+
+   @Test
+   void sessionReadsAFrameThatArrivesInPieces() throws IOException {
+      Session session = new Session(1, server, new GameConfig());
+      send(ByteBuffer.allocate(3).put((byte) 0).put((byte) 0).put((byte) 0));
+      assertTrue(session.read());
+      send(ByteBuffer.allocate(2).put((byte) 2).put((byte) Protocol.INPUT));
+      assertTrue(session.read());
+      assertEquals(0, session.getInputBits()); // one byte of the body is still missing
+      send(ByteBuffer.allocate(1).put((byte) (Input.RIGHT_BIT | Input.LAUNCH_BIT)));
+      assertTrue(session.read());
+      assertEquals(Input.RIGHT_BIT | Input.LAUNCH_BIT, session.getInputBits());
+   }
+
+   @Test
+   void sessionRefusesNegativeLengths() throws IOException {
+      Session session = new Session(1, server, new GameConfig());
+      send(ByteBuffer.allocate(6).putInt(-5).put((byte) Protocol.INPUT).put((byte) 0));
+      assertThrows(ProtocolException.class, session::read);
+   }
+
+   @Test
+   void sessionRefusesOversizedFrames() throws IOException {
+      // a whole frame that is too long
+      Session session = new Session(1, server, new GameConfig());
+      send(ByteBuffer.allocate(4 + 17).putInt(17).put((byte) Protocol.INPUT).put(new byte[16]));
+      assertFalse(session.read());
+   }
+
+   @Test
+   void sessionRefusesOversizedHeaders() throws IOException {
+      // only the length of a frame too long to wait for has arrived
+      Session session = new Session(1, server, new GameConfig());
+      send(ByteBuffer.allocate(4).putInt(1 << 20));
+      assertFalse(session.read());
+   }
+
+   @Test
+   void sessionRefusesEmptyFrames() throws IOException {
+      Session session = new Session(1, server, new GameConfig());
+      send(ByteBuffer.allocate(4).putInt(0));
+      assertFalse(session.read());
+   }
+
+   private void send(ByteBuffer bytes) throws IOException {
+      bytes.flip();
+      while (bytes.hasRemaining()) {
+         client.write(bytes);
+      }
+   }
+}
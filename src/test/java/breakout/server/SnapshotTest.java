@@ -0,0 +1,89 @@
+/*
+ * This is part of a simple breakout clone.
+ * SnapshotTest.java streams deltas of a stepped World from one Snapshot to
+ * another, as GameServer and its clients do, and checks the client copy
+ * against the World after every delta: through balls being served, new
+ * layouts, destroyed bricks, and deltas that cover several ticks.
+ * @author: Mickey Kim
+ */
+package breakout.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import breakout.sim.BallSet;
+import breakout.sim.GameConfig;
+import breakout.sim.Headless;
+import breakout.sim.Input;
+import breakout.sim.World;
+import org.junit.jupiter.api.Test;
+
+class SnapshotTest {
+   private static final int STEPS = 30_000;
+
+   @Test
+   void clientFollowsTheWorld() {
+      GameConfig config = new GameConfig();
+      config.ballCount = 3;
+      World world = new World(config);
+      int capacity = world.getBalls().capacity();
+      Snapshot current = new Snapshot(capacity), sent = new Snapshot(capacity), client = new Snapshot(capacity);
+      ByteBuffer frame = ByteBuffer.allocate(1 << 16);
+      Input input = new Input();
+      int layout = world.getLayoutCount();
+      int[] pending = new int[1 << 12]; // bricks destroyed since the last delta
+      int pendingCount = 0;
+      int served = 0, layouts = 0, destroyed = 0; // balls that came into play, new layouts, bricks
+      boolean[] wasLive = new boolean[capacity];
+      for (int t = 0; t < STEPS; t++) {
+         Headless.autopilot(world, input);
+         world.step(input);
+         input.clearPresses();
+         if (world.getLayoutCount() != layout) {
+            layout = world.getLayoutCount();
+            current.clearDestroyed();
+            pendingCount = 0;
+            layouts++;
+         }
+         for (int k = 0; k < world.getDestroyedCount(); k++) {
+            current.addDestroyed(world.getDestroyed(k));
+            pending[pendingCount++] = world.getDestroyed(k);
+         }
+         if (t % 7 == 3) {
+            continue; // the client has not taken the last delta; the next one covers both ticks
+         }
+         current.capture(world);
+         frame.clear();
+         current.writeDelta(sent, frame);
+         frame.flip();
+         client.readDelta(frame);
+         assertEquals(0, frame.remaining(), "delta read to its end");
+         assertEquals(world.getTick(), client.getTick());
+         assertEquals((float) world.getPaddleX(), client.getPaddleX());
+         assertEquals(world.getScore(), client.getScore());
+         assertEquals(world.getLives(), client.getLives());
+         assertEquals(world.getLevel(), client.getLevel());
+         assertEquals(world.getLayoutCount(), client.getLayout());
+         assertEquals(world.hasRoundStarted(), client.hasRoundStarted());
+         BallSet balls = world.getBalls();
+         assertEquals(balls.size(), client.getBallCount());
+         for (int i = 0; i < balls.size(); i++) {
+            assertEquals(balls.isLive(i), client.isBallLive(i), "ball " + i + " at tick " + world.getTick());
+            assertEquals((float) balls.getX(i), client.getBallX(i));
+            assertEquals((float) balls.getY(i), client.getBallY(i));
+            served += balls.isLive(i) && !wasLive[i] ? 1 : 0;
+            wasLive[i] = balls.isLive(i);
+         }
+         assertEquals(pendingCount, client.getDestroyedCount());
+         for (int k = 0; k < pendingCount; k++) {
+            assertEquals(pending[k], client.getDestroyed(k));
+         }
+         destroyed += pendingCount;
+         pendingCount = 0;
+      }
+      assertTrue(served > config.ballCount, served + " balls came into play");
+      assertTrue(layouts > 0, "the bricks were laid out again");
+      assertTrue(destroyed > 0, "bricks were destroyed");
+   }
+}
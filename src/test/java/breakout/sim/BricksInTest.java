@@ -0,0 +1,75 @@
+/*
+ * This is part of a simple breakout clone.
+ * BricksInTest.java checks World.bricksIn, which the scrolling view uses to
+ * find the bricks near the window, against a scan of the whole field on a
+ * level much taller than the window, before and after bricks are destroyed.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BricksInTest {
+   private static final int ROWS = 400, COLS = 7;
+   private static final int QUERIES = 2_000;
+   @TempDir
+   Path dir;
+
+   @Test
+   void findsEveryLiveBrickInTheBoxOnce() throws IOException {
+      GameConfig config = new GameConfig();
+      BrickField layout = new BrickField(ROWS * COLS);
+      for (int row = 0; row < ROWS; row++) {
+         for (int col = 0; col < COLS; col++) {
+            layout.add(config.brickXOffset + col * config.brickXGap, config.brickYOffset + row * config.brickYGap,
+                       config.brickWidth, config.brickHeight, row % config.brickColors, 1);
+         }
+      }
+      double height = config.brickYOffset + ROWS * config.brickYGap + config.height / 2;
+      Path path = dir.resolve("tall.brkl");
+      LevelFile.write(path, layout, config.width, height);
+      config.height = height; // as --scroll sizes the world to the level
+      World world = new World(config, new LevelFile(path));
+      assertEquals(ROWS * COLS, world.getBricks().size());
+      SplittableRandom random = new SplittableRandom(7);
+      check(world, random);
+      for (int k = 0; k < ROWS * COLS / 3; k++) {
+         int brick = random.nextInt(ROWS * COLS);
+         if (world.getBricks().isAlive(brick)) {
+            world.destroyBrick(brick);
+         }
+      }
+      check(world, random);
+   }
+
+   // Windows, with a margin, at random places in the level
+   private static void check(World world, SplittableRandom random) {
+      BrickField bricks = world.getBricks();
+      double width = world.getConfig().width, height = world.getConfig().height;
+      for (int q = 0; q < QUERIES; q++) {
+         double minX = random.nextDouble(-200, width), minY = random.nextDouble(-200, height);
+         double maxX = minX + random.nextDouble(1, 840), maxY = minY + random.nextDouble(1, 1040);
+         int found = world.bricksIn(minX, minY, maxX, maxY);
+         int[] results = world.getBricksFound();
+         int[] times = new int[bricks.size()];
+         for (int c = 0; c < found; c++) {
+            times[results[c]]++;
+         }
+         for (int i = 0; i < bricks.size(); i++) {
+            assertTrue(times[i] <= 1, "brick " + i + " found twice");
+            boolean inBox = bricks.getXRight(i) >= minX && bricks.getXLeft(i) <= maxX &&
+                            bricks.getYLower(i) >= minY && bricks.getYUpper(i) <= maxY;
+            if (bricks.isAlive(i) && inBox) {
+               assertEquals(1, times[i], "brick " + i + " in the box was not found");
+            }
+         }
+      }
+   }
+}
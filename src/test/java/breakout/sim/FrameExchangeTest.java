@@ -0,0 +1,120 @@
+/*
+ * This is part of a simple breakout clone.
+ * FrameExchangeTest.java checks the triple buffer on one thread, then runs
+ * the --sim=thread handoff between two: a writer stepping a World as fast as
+ * it can, and a reader with random hitches that applies every frame it takes
+ * to a replica and reads the events up to it from a MessageQueue.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class FrameExchangeTest {
+   private static final int STEPS = 20_000;
+   private static final int MSG_FRAME = -1; // as Breakout marks the end of a frame's events
+
+   @Test
+   void readerGetsTheNewestFrameOnce() {
+      World world = new World(new GameConfig());
+      FrameExchange frames = new FrameExchange(world);
+      assertNull(frames.take());
+      frames.back().capture(world, 1);
+      frames.publish();
+      frames.back().capture(world, 2);
+      frames.publish();
+      StateFrame frame = frames.take();
+      assertNotNull(frame);
+      assertEquals(2, frame.getSequence());
+      assertEquals(2, frame.getNanos());
+      assertEquals(1, frames.getDropped());
+      assertNull(frames.take());
+      assertEquals(1, frames.getReused());
+      // the frame taken is not written again until the reader lets go of it
+      for (int i = 0; i < 3; i++) {
+         frames.back().capture(world, 3 + i);
+         frames.publish();
+      }
+      assertEquals(2, frame.getNanos());
+   }
+
+   @Test
+   void handoffKeepsStatesAndEvents() throws InterruptedException {
+      GameConfig config = new GameConfig();
+      config.ballCount = 3;
+      World sim = new World(config), view = new World(config);
+      FrameExchange frames = new FrameExchange(sim);
+      MessageQueue messages = new MessageQueue(1 << 16);
+      long[] checksums = new long[STEPS + 2]; // by tick
+      long[] sent = new long[2]; // events and their running hash, read once the writer is done
+      Thread writer = new Thread(() -> {
+         Input input = new Input();
+         long count = 0, hash = 0;
+         for (int t = 0; t < STEPS; t++) {
+            Headless.autopilot(sim, input);
+            sim.step(input);
+            input.clearPresses();
+            EventQueue events = sim.getEvents();
+            while (events.next()) {
+               offer(messages, events.type(), events.arg());
+               count++;
+               hash = hash * 31 + events.type() * 65599 + events.arg();
+            }
+            checksums[(int) sim.getTick()] = sim.checksum();
+            frames.back().capture(sim, System.nanoTime());
+            offer(messages, MSG_FRAME, frames.nextSequence());
+            frames.publish();
+         }
+         sent[0] = count;
+         sent[1] = hash;
+      }, "writer");
+      writer.start();
+      SplittableRandom random = new SplittableRandom(1);
+      long received = 0, hash = 0, taken = 0;
+      StateFrame last = null;
+      while (true) {
+         boolean done = !writer.isAlive(); // before take(), so the last frame is not missed
+         StateFrame frame = frames.take();
+         if (frame != null) {
+            frame.applyTo(view);
+            assertEquals(checksums[(int) frame.getTick()], view.checksum(), "state of tick " + frame.getTick());
+            long marker = -1;
+            while (marker != frame.getSequence() && messages.poll()) {
+               if (messages.code() == MSG_FRAME) {
+                  marker = messages.value();
+               } else {
+                  received++;
+                  hash = hash * 31 + messages.code() * 65599 + (int) messages.value();
+               }
+            }
+            assertEquals(frame.getSequence(), marker, "events end at the frame taken");
+            last = frame;
+            taken++;
+         } else if (done) {
+            break;
+         }
+         if (random.nextInt(20) == 0) {
+            Thread.sleep(random.nextInt(3)); // a late pulse
+         } else {
+            Thread.yield();
+         }
+      }
+      writer.join();
+      assertEquals(STEPS, last.getSequence());
+      assertEquals(sent[0], received);
+      assertEquals(sent[1], hash);
+      assertEquals(sim.checksum(), view.checksum());
+      assertEquals(STEPS, taken + frames.getDropped());
+   }
+
+   private static void offer(MessageQueue queue, int code, long value) {
+      while (!queue.offer(code, value)) {
+         Thread.yield();
+      }
+   }
+}
@@ -0,0 +1,75 @@
+/*
+ * This is part of a simple breakout clone.
+ * LevelFileTest.java checks that level files with records the game cannot
+ * play are refused when opened, and which bricks a world too narrow for the
+ * level gets.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LevelFileTest {
+   private static final int HEADER_SIZE = 20, RECORD_SIZE = 20; // as in LevelFile
+   @TempDir
+   Path dir;
+
+   @Test
+   void opensAWrittenLevel() throws IOException {
+      LevelFile level = new LevelFile(ByteBuffer.wrap(grid(3, 4)), "grid");
+      assertEquals(12, level.size());
+   }
+
+   @Test
+   void refusesBadRecords() throws IOException {
+      assertRefused(patchFloat(grid(3, 4), 5, 0, 1e9f), "outside");          // x far off
+      assertRefused(patchFloat(grid(3, 4), 5, 4, -20), "outside");           // y above the level
+      assertRefused(patchFloat(grid(3, 4), 5, 8, 0), "bad position or size"); // width 0
+      assertRefused(patchFloat(grid(3, 4), 0, 4, 200), "not sorted");        // first brick moved down
+      byte[] color = grid(3, 4);
+      ByteBuffer.wrap(color).putShort(HEADER_SIZE + 5 * RECORD_SIZE + 16, (short) -1);
+      assertRefused(color, "negative color");
+      byte[] health = grid(3, 4);
+      ByteBuffer.wrap(health).putShort(HEADER_SIZE + 5 * RECORD_SIZE + 18, (short) 0);
+      assertRefused(health, "health");
+   }
+
+   @Test
+   void leavesOutBricksPastTheWorld() throws IOException {
+      GameConfig config = new GameConfig();
+      LevelFile level = new LevelFile(ByteBuffer.wrap(grid(10, 8)), "wide");
+      assertTrue(level.getWidth() > config.width);
+      World world = new World(config, level);
+      BrickField bricks = world.getBricks();
+      assertEquals(70, bricks.size()); // the eighth column does not fit
+      for (int i = 0; i < bricks.size(); i++) {
+         assertTrue(bricks.getXRight(i) <= config.width);
+      }
+   }
+
+   // A level from the generator in LevelFile.main
+   private byte[] grid(int rows, int cols) throws IOException {
+      Path path = dir.resolve(rows + "x" + cols + ".brkl");
+      LevelFile.main(new String[] {path.toString(), Integer.toString(rows), Integer.toString(cols)});
+      return Files.readAllBytes(path);
+   }
+
+   private static byte[] patchFloat(byte[] file, int brick, int field, float value) {
+      ByteBuffer.wrap(file).putFloat(HEADER_SIZE + brick * RECORD_SIZE + field, value);
+      return file;
+   }
+
+   private static void assertRefused(byte[] file, String reason) {
+      IOException e = assertThrows(IOException.class, () -> new LevelFile(ByteBuffer.wrap(file), "bad"));
+      assertTrue(e.getMessage().contains(reason), e.getMessage());
+   }
+}
@@ -0,0 +1,55 @@
+/*
+ * This is part of a simple breakout clone.
+ * MessageQueueTest.java checks the ring's order, its full and empty cases,
+ * and that messages survive the indices wrapping around.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class MessageQueueTest {
+   @Test
+   void deliversInOrderUntilEmpty() {
+      MessageQueue queue = new MessageQueue(8);
+      for (int i = 0; i < 5; i++) {
+         assertTrue(queue.offer(i, 100L + i));
+      }
+      for (int i = 0; i < 5; i++) {
+         assertTrue(queue.poll());
+         assertEquals(i, queue.code());
+         assertEquals(100L + i, queue.value());
+      }
+      assertFalse(queue.poll());
+   }
+
+   @Test
+   void refusesWhenFull() {
+      MessageQueue queue = new MessageQueue(5); // rounded up to 8
+      for (int i = 0; i < 8; i++) {
+         assertTrue(queue.offer(i, i));
+      }
+      assertFalse(queue.offer(8, 8));
+      assertTrue(queue.poll());
+      assertEquals(0, queue.code());
+      assertTrue(queue.offer(8, 8));
+   }
+
+   @Test
+   void wrapsAround() {
+      MessageQueue queue = new MessageQueue(4);
+      for (int i = 0; i < 1000; i++) {
+         assertTrue(queue.offer(i, -i));
+         assertTrue(queue.offer(i + 1, -i - 1));
+         assertTrue(queue.poll());
+         assertEquals(i, queue.code());
+         assertTrue(queue.poll());
+         assertEquals(-i - 1, queue.value());
+      }
+      assertFalse(queue.poll());
+   }
+}
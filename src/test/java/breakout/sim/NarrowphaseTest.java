@@ -0,0 +1,72 @@
+/*
+ * This is part of a simple breakout clone.
+ * NarrowphaseTest.java culls random batches of boxes with the scalar
+ * Narrowphase and with Narrowphase.best() (the vector one when it is built and
+ * the JVM has the incubator module, as under the vector profile), and checks
+ * that both keep the same boxes in the same order, and never a box fewer than
+ * the exact Swept.circleBox test hits.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class NarrowphaseTest {
+   private static final int BATCHES = 20_000;
+   private static final double R = new GameConfig().ballRadius;
+
+   @Test
+   void bestKeepsWhatScalarKeepsAndEveryHit() {
+      Narrowphase scalar = Narrowphase.scalar(), best = Narrowphase.best();
+      SplittableRandom random = new SplittableRandom(42);
+      Swept.Contact contact = new Swept.Contact();
+      for (int b = 0; b < BATCHES; b++) {
+         int n = 1 + random.nextInt(100);
+         BrickField bricks = new BrickField(n);
+         for (int i = 0; i < n; i++) {
+            bricks.add(random.nextDouble(600), random.nextDouble(800),
+                       1 + random.nextDouble(80), 1 + random.nextDouble(30), 0, 1);
+         }
+         double px = random.nextDouble(600), py = random.nextDouble(800);
+         // now and then an axis-aligned move, which both pass through uncut
+         double vx = random.nextInt(10) == 0 ? 0 : random.nextDouble(-400, 400);
+         double vy = random.nextInt(10) == 0 ? 0 : random.nextDouble(-400, 400);
+         double tMax = random.nextDouble(1.5);
+         BrickLanes a = lanes(bricks), c = lanes(bricks);
+         int keptScalar = scalar.cull(px, py, vx, vy, R, tMax, a);
+         int keptBest = best.cull(px, py, vx, vy, R, tMax, c);
+         assertEquals(keptScalar, keptBest, "batch " + b);
+         for (int k = 0; k < keptScalar; k++) {
+            assertEquals(a.getId(k), c.getId(k), "batch " + b);
+         }
+         // every box the exact test hits survived the cull
+         for (int i = 0; i < n; i++) {
+            if (Swept.circleBox(px, py, vx, vy, R, bricks.getXLeft(i), bricks.getYUpper(i),
+                                bricks.getXRight(i), bricks.getYLower(i), tMax, contact)) {
+               assertTrue(kept(a, keptScalar, i), "batch " + b + " lost brick " + i);
+            }
+         }
+      }
+   }
+
+   private static BrickLanes lanes(BrickField bricks) {
+      BrickLanes lanes = new BrickLanes(bricks.size());
+      for (int i = 0; i < bricks.size(); i++) {
+         lanes.add(bricks, i);
+      }
+      return lanes;
+   }
+
+   private static boolean kept(BrickLanes lanes, int kept, int brick) {
+      for (int k = 0; k < kept; k++) {
+         if (lanes.getId(k) == brick) {
+            return true;
+         }
+      }
+      return false;
+   }
+}
@@ -0,0 +1,79 @@
+/*
+ * This is part of a simple breakout clone.
+ * ReplayTest.java records autopilot games with InputRecorder and checks that
+ * Replay ends them in the same state, with the default layout and a level file.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayTest {
+   private static final int STEPS = 30_000;
+   @TempDir
+   Path dir;
+
+   @Test
+   void replaysTheDefaultLayout() throws IOException {
+      GameConfig config = new GameConfig();
+      config.ballCount = 3;
+      World world = new World(config);
+      Path file = dir.resolve("default.brkr");
+      record(world, new InputRecorder(file.toString(), config), false);
+      Replay replay = new Replay(file.toString());
+      assertTrue(replay.matches());
+      assertEquals(STEPS, replay.getTicks());
+      assertEquals(world.getScore(), replay.getWorld().getScore());
+   }
+
+   @Test
+   void replaysALevelFile() throws IOException {
+      GameConfig config = new GameConfig();
+      BrickField bricks = new BrickField(4);
+      bricks.add(100, 80, 60, 20, 0, 2);
+      bricks.add(200, 80, 60, 20, 1, 1);
+      bricks.add(300, 120, 60, 20, 2, 3);
+      bricks.add(150, 160, 200, 20, 3, 1);
+      Path levelPath = dir.resolve("level.brkl");
+      LevelFile.write(levelPath, bricks, config.width, config.height);
+      LevelFile level = new LevelFile(levelPath);
+      World world = new World(config, level);
+      Path file = dir.resolve("level.brkr");
+      record(world, new InputRecorder(file.toString(), config, level), false);
+      Replay replay = new Replay(file.toString());
+      assertTrue(replay.matches());
+      assertEquals(world.getBricks().size(), replay.getWorld().getBricks().size());
+   }
+
+   @Test
+   void reportsAMismatch() throws IOException {
+      GameConfig config = new GameConfig();
+      World world = new World(config);
+      Path file = dir.resolve("changed.brkr");
+      record(world, new InputRecorder(file.toString(), config), true);
+      assertFalse(new Replay(file.toString()).matches());
+   }
+
+   // Play STEPS autopilot steps, recording each; cheat then destroys a brick
+   // the recorder does not see, as a mouse click did before it was turned off
+   private static void record(World world, InputRecorder recorder, boolean cheat) throws IOException {
+      Input input = new Input();
+      for (int t = 0; t < STEPS; t++) {
+         Headless.autopilot(world, input);
+         recorder.record(input);
+         world.step(input);
+         input.clearPresses();
+      }
+      if (cheat) {
+         world.destroyBrick(world.getBricks().nextAlive(0));
+      }
+      recorder.finish(world);
+   }
+}
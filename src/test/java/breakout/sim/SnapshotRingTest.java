@@ -0,0 +1,100 @@
+/*
+ * This is part of a simple breakout clone.
+ * SnapshotRingTest.java checks that rewinding and quick-loading put back the
+ * exact World state of an earlier step, keyframe or delta, and that play from
+ * a restored state goes on as it did the first time.
+ * @author: Mickey Kim
+ */
+package breakout.sim;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class SnapshotRingTest {
+   private static final int STEPS = 600;
+   private final Input input = new Input();
+
+   @Test
+   void rewindRestoresEachStep() {
+      GameConfig config = new GameConfig();
+      config.ballCount = 5;
+      World world = new World(config);
+      SnapshotRing ring = new SnapshotRing(world, 20); // holds every step played here
+      byte[][] states = new byte[STEPS + 1][];
+      for (int t = 1; t <= STEPS; t++) {
+         step(world);
+         ring.record();
+         states[t] = state(world);
+      }
+      // back by steps that land on keyframes, on deltas and across keyframes
+      int at = STEPS;
+      for (int back : new int[] {1, 7, 59, 60, 61, 150}) {
+         assertEquals(back, ring.rewind(back));
+         at -= back;
+         assertArrayEquals(states[at], state(world), "state " + at + " steps in");
+      }
+      // the restored World plays on exactly as before
+      for (int t = at + 1; t <= STEPS; t++) {
+         step(world);
+         ring.record();
+         assertArrayEquals(states[t], state(world), "state " + t + " steps in, played again");
+      }
+   }
+
+   @Test
+   void rewindStopsAtTheOldestSnapshot() {
+      World world = new World(new GameConfig());
+      SnapshotRing ring = new SnapshotRing(world, 1);
+      byte[][] states = new byte[STEPS * 2 + 1][];
+      for (int t = 1; t <= STEPS * 2; t++) {
+         step(world);
+         ring.record();
+         states[t] = state(world);
+      }
+      int back = ring.rewind(Integer.MAX_VALUE);
+      assertTrue(back >= 60 && back < STEPS * 2, "went back " + back);
+      assertArrayEquals(states[STEPS * 2 - back], state(world));
+      assertEquals(0, ring.rewind(1));
+   }
+
+   @Test
+   void quickLoadRestoresTheSave() {
+      World world = new World(new GameConfig());
+      SnapshotRing ring = new SnapshotRing(world, 10);
+      assertFalse(ring.quickLoad());
+      for (int t = 0; t < STEPS; t++) {
+         step(world);
+         ring.record();
+      }
+      ring.quickSave();
+      byte[] saved = state(world);
+      long checksum = world.checksum();
+      for (int t = 0; t < STEPS; t++) {
+         step(world);
+         ring.record();
+      }
+      assertFalse(Arrays.equals(saved, state(world)));
+      assertTrue(ring.quickLoad());
+      assertArrayEquals(saved, state(world));
+      assertEquals(checksum, world.checksum());
+      assertEquals(0, ring.size()); // history led to a different state
+   }
+
+   private void step(World world) {
+      Headless.autopilot(world, input);
+      world.step(input);
+      input.clearPresses();
+   }
+
+   private static byte[] state(World world) {
+      ByteBuffer buffer = ByteBuffer.allocate(world.maxStateBytes());
+      world.writeState(buffer);
+      return Arrays.copyOf(buffer.array(), buffer.position());
+   }
+}